@@ -0,0 +1,84 @@
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+// bench 패키지의 JMH 벤치마크가 기본 패키지의 저장소 클래스를 호출하기 위한 진입점
+// (JMH는 기본 패키지의 벤치마크 클래스를 허용하지 않으므로 MethodHandle로 이 클래스를 거쳐 호출)
+public class StorageBenchmarkSupport {
+    public static void ensureTable(String tableName, long rows, long distinctKeys, String distribution, long seed) throws IOException {
+        SyntheticTableGenerator.ensureTable(tableName, rows, distinctKeys, distribution, seed);
+    }
+
+    public static List<List<String>> generateRows(long rows, long distinctKeys, String distribution, long seed) {
+        return SyntheticTableGenerator.generateRows(rows, distinctKeys, distribution, seed);
+    }
+
+    public static String key(long index) {
+        return SyntheticTableGenerator.key(index);
+    }
+
+    public static void createTable(String tableName) throws IOException {
+        DBStorageManager.createTable(tableName, SyntheticTableGenerator.FIELD_NAMES, SyntheticTableGenerator.FIELD_SIZES);
+    }
+
+    public static int appendRecords(String tableName, List<List<String>> rows) throws IOException {
+        return DBStorageManager.appendRecords(tableName, rows);
+    }
+
+    public static List<Integer> fieldSizes(String tableName) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(tableName + Constants.FILE_EXTENSION, "r")) {
+            File header = new File();
+            header.readFileHeader(raf);
+            return header.fieldSizes;
+        }
+    }
+
+    public static int firstBlockOffset() {
+        return Constants.BLOCK_SIZE;
+    }
+
+    // Block.readBlock(+ Record.readRecord)으로 블록 하나를 읽고 다음 블록 offset 반환
+    public static int readBlock(RandomAccessFile raf, int offset, List<Integer> fieldSizes, Blackhole bh) throws IOException {
+        Block block = Block.readBlock(raf, offset, fieldSizes);
+        bh.consume(block);
+        return block.nextBlockOffset;
+    }
+
+    // 체인 앞쪽 count개 블록의 원본 이미지를 메모리로 읽어 둠 (디코딩만 따로 측정)
+    public static List<byte[]> loadBlockImages(String tableName, int count) throws IOException {
+        List<byte[]> images = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(tableName + Constants.FILE_EXTENSION, "r")) {
+            int offset = Constants.BLOCK_SIZE;
+            while (offset != -1 && images.size() < count) {
+                byte[] image = Block.readBlockImage(raf, offset);
+                images.add(image);
+                offset = Block.decodeBlock(image, SyntheticTableGenerator.FIELD_SIZES).nextBlockOffset;
+            }
+        }
+        return images;
+    }
+
+    public static void decodeBlock(byte[] image, List<Integer> fieldSizes, Blackhole bh) {
+        bh.consume(Block.decodeBlock(image, fieldSizes));
+    }
+
+    // extractFieldValues / getRecordsInRangeFromFile가 읽을 입력 파일 작성
+    public static void writeLines(String path, List<String> lines) throws IOException {
+        Files.write(Paths.get(path), lines);
+    }
+
+    public static List<String> extractFieldValues(String metadataPath) throws IOException {
+        return DBStorageManager.extractFieldValues(metadataPath);
+    }
+
+    public static List<?> getRecordsInRangeFromFile(String queryFilePath) throws IOException {
+        return DBStorageManager.getRecordsInRangeFromFile(queryFilePath);
+    }
+
+    public static void executeMergeJoin(String sqlQuery, Blackhole bh) throws IOException {
+        DBQueryProcessor.executeJoin(sqlQuery, bh::consume, bh::consume);
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+// 벤치마크용 합성 테이블 생성기
+// 키를 정렬된 순서로 만들어 블록을 앞에서부터 이어 쓰므로 큰 테이블도 순차 쓰기 한 번으로 생성
+//   uniform: distinctKeys개의 키가 같은 횟수만큼 등장
+//   skewed : 키 k의 빈도가 1/k에 비례 (Zipf, s = 1)
+public class SyntheticTableGenerator {
+    public static final List<String> FIELD_NAMES = List.of("key", "payload");
+    public static final List<Integer> FIELD_SIZES = List.of(8, 8);   // 레코드 29 bytes, 블록당 3개
+
+    private static final int TXN_ID = 1;
+
+    // 같은 이름/행 수의 테이블이 이미 있으면 재사용
+    public static void ensureTable(String tableName, long rows, long distinctKeys, String distribution, long seed) throws IOException {
+        String filename = tableName + Constants.FILE_EXTENSION;
+        if (Files.exists(Paths.get(filename))) {
+            try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+                File header = new File();
+                header.readFileHeader(raf);
+                if (header.recordCount == rows && header.committedTxnId == TXN_ID) return;
+            } catch (IOException e) {
+                // 이전 형식으로 만들어진 테이블이면 새로 생성
+            }
+        }
+        generate(tableName, rows, distinctKeys, distribution, seed);
+    }
+
+    public static void generate(String tableName, long rows, long distinctKeys, String distribution, long seed) throws IOException {
+        long maxBlocks = (Integer.MAX_VALUE - Constants.BLOCK_SIZE) / Constants.BLOCK_SIZE;
+        if (rows < 1 || distinctKeys < 1 || distinctKeys > rows) {
+            throw new IllegalArgumentException("행 수와 키 개수가 잘못되었습니다: " + rows + ", " + distinctKeys);
+        }
+        if (rows > maxBlocks * recordsPerBlock()) {
+            throw new IllegalArgumentException("블록 offset이 int 범위를 넘습니다: 최대 " + maxBlocks * recordsPerBlock() + "행");
+        }
+
+        String filename = tableName + Constants.FILE_EXTENSION;
+        StorageEngine.shared().latchFor(filename).lockFile();   // 다른 프로세스가 쓰고 있는 테이블을 덮어쓰지 않도록
+        KeySequence keys = new KeySequence(rows, distinctKeys, distribution);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 20)) {
+            out.write(new byte[Constants.BLOCK_SIZE]);   // 헤더 자리, 마지막에 기록
+
+            int blockOffset = Constants.BLOCK_SIZE;
+            long written = 0;
+            while (written < rows) {
+                Block block = new Block();
+                for (int i = 0; i < recordsPerBlock() && written < rows; i++, written++) {
+                    Record record = new Record(List.of(keys.next(), String.format("P%07d", random.nextInt(10_000_000))));
+                    record.createdTxn = TXN_ID;
+                    block.addRecord(record, FIELD_SIZES);
+                }
+                block.nextBlockOffset = (written < rows) ? blockOffset + Constants.BLOCK_SIZE : -1;
+                out.write(block.encodeBlock(FIELD_SIZES));
+                blockOffset += Constants.BLOCK_SIZE;
+            }
+        }
+
+        File header = new File();
+        header.fieldNames = FIELD_NAMES;
+        header.fieldSizes = FIELD_SIZES;
+        header.recordCount = (int) rows;
+        header.firstBlockOffset = Constants.BLOCK_SIZE;
+        header.committedTxnId = TXN_ID;
+        try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+            header.writeFileHeader(raf);
+        }
+
+        // 엔진 밖에서 파일을 새로 썼으므로 캐시된 스키마/통계를 버림
+        Files.deleteIfExists(Paths.get(tableName + Constants.STATS_EXTENSION));
+        StorageEngine.shared().invalidate(filename);
+    }
+
+    // 삽입 벤치마크용: 같은 분포의 레코드를 메모리에만 생성
+    public static List<List<String>> generateRows(long rows, long distinctKeys, String distribution, long seed) {
+        KeySequence keys = new KeySequence(rows, distinctKeys, distribution);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<List<String>> result = new ArrayList<>((int) rows);
+        for (long i = 0; i < rows; i++) {
+            result.add(List.of(keys.next(), String.format("P%07d", random.nextInt(10_000_000))));
+        }
+        return result;
+    }
+
+    public static String key(long index) {
+        return String.format("K%07d", index);
+    }
+
+    private static int recordsPerBlock() {
+        int recordSize = new Record(List.of("", "")).getSize(FIELD_SIZES);
+        return (Constants.BLOCK_SIZE - Constants.BLOCK_HEADER_SIZE) / recordSize;
+    }
+
+    // 정렬된 키 나열: 키 k가 나올 횟수는 누적 비율로 정해 전체 합이 정확히 rows가 되도록 함
+    private static class KeySequence {
+        private final long rows;
+        private final long distinctKeys;
+        private final boolean skewed;
+        private final double harmonic;
+        private long keyIndex = 0;
+        private long emitted = 0;
+        private long keyEnd = 0;
+        private double cumulativeWeight = 0.0;
+
+        KeySequence(long rows, long distinctKeys, String distribution) {
+            if (!distribution.equals("uniform") && !distribution.equals("skewed")) {
+                throw new IllegalArgumentException("지원하지 않는 분포입니다: " + distribution);
+            }
+            this.rows = rows;
+            this.distinctKeys = distinctKeys;
+            this.skewed = distribution.equals("skewed");
+
+            double sum = 0.0;
+            if (skewed) {
+                for (long k = 1; k <= distinctKeys; k++) sum += 1.0 / k;
+            }
+            this.harmonic = sum;
+        }
+
+        String next() {
+            // 현재 키의 몫을 다 썼으면 다음 키로 (모든 키가 최소 한 번은 나오도록 보정)
+            while (emitted >= keyEnd && keyIndex < distinctKeys) {
+                keyIndex++;
+                cumulativeWeight += skewed ? (1.0 / keyIndex) / harmonic : 1.0 / distinctKeys;
+                long target = (keyIndex == distinctKeys) ? rows : Math.round(rows * cumulativeWeight);
+                keyEnd = Math.max(target, Math.min(emitted + 1, rows - (distinctKeys - keyIndex)));
+            }
+            emitted++;
+            return key(keyIndex - 1);
+        }
+    }
+}
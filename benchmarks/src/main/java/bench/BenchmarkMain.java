@@ -0,0 +1,35 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// java -jar benchmarks/target/benchmarks.jar [JMH 옵션]
+// JMH 기본 옵션을 그대로 받고, 할당량 비교를 위해 GC 프로파일러를 기본으로 붙임
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+
+        Runner listRunner = new Runner(cmdOptions);
+        if (cmdOptions.shouldList()) {
+            listRunner.list();
+            return;
+        }
+        if (cmdOptions.shouldListProfilers()) {
+            cmdOptions.listProfilers();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
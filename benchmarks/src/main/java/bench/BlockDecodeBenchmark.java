@@ -0,0 +1,67 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 블록 한 개 읽기 비용
+//   readBlock  : 파일에서 읽고 디코딩 (Block.readBlock, 페이지 캐시에 올라간 상태)
+//   decodeBlock: 메모리의 블록 이미지 디코딩만 (Block.decodeBlock + Record.readRecord)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BlockDecodeBenchmark {
+    private static final int ROWS = 100_000;
+    private static final int IMAGES = 1024;
+
+    private static final MethodHandle FIELD_SIZES = Storage.find("fieldSizes", List.class, String.class);
+    private static final MethodHandle FIRST_BLOCK_OFFSET = Storage.find("firstBlockOffset", int.class);
+    private static final MethodHandle READ_BLOCK =
+            Storage.find("readBlock", int.class, RandomAccessFile.class, int.class, List.class, Blackhole.class);
+    private static final MethodHandle LOAD_BLOCK_IMAGES = Storage.find("loadBlockImages", List.class, String.class, int.class);
+    private static final MethodHandle DECODE_BLOCK =
+            Storage.find("decodeBlock", void.class, byte[].class, List.class, Blackhole.class);
+
+    private RandomAccessFile raf;
+    private List<?> fieldSizes;
+    private int firstOffset;
+    private int offset;
+    private byte[][] images;
+    private int imageIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        String tableName = Tables.ensure("bench_block", ROWS, Tables.distinctKeys(ROWS), "uniform");
+        fieldSizes = (List<?>) FIELD_SIZES.invokeExact(tableName);
+        firstOffset = (int) FIRST_BLOCK_OFFSET.invokeExact();
+        offset = firstOffset;
+        raf = new RandomAccessFile(tableName + ".bin", "r");
+
+        List<?> loaded = (List<?>) LOAD_BLOCK_IMAGES.invokeExact(tableName, IMAGES);
+        images = loaded.toArray(new byte[0][]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        raf.close();
+    }
+
+    @Benchmark
+    public void readBlock(Blackhole bh) throws Throwable {
+        int next = (int) READ_BLOCK.invokeExact(raf, offset, (List) fieldSizes, bh);
+        offset = (next == -1) ? firstOffset : next;
+    }
+
+    @Benchmark
+    public void decodeBlock(Blackhole bh) throws Throwable {
+        DECODE_BLOCK.invokeExact(images[imageIndex], (List) fieldSizes, bh);
+        imageIndex = (imageIndex + 1) % images.length;
+    }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 한 트랜잭션으로 rows개 레코드 적재 (DBStorageManager.appendRecords)
+// 레코드마다 블록 체인을 따라가므로 매 반복마다 빈 테이블에서 시작하도록 SingleShotTime으로 측정
+// File.addRecord가 삽입할 때마다 체인을 처음부터 끝까지 따라가 적재 비용이 O(n^2)이므로 10K행에서 멈춤
+// (10K행 한 번에 약 30초, 100K행이면 반복 한 번에 약 1시간). 큰 테이블은 SyntheticTableGenerator로 만듦
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BulkLoadBenchmark {
+    private static final MethodHandle CREATE_TABLE = Storage.find("createTable", void.class, String.class);
+    private static final MethodHandle APPEND_RECORDS = Storage.find("appendRecords", int.class, String.class, List.class);
+
+    @Param({"1000", "10000"})
+    public long rows;
+
+    @Param({"uniform", "skewed"})
+    public String distribution;
+
+    private String tableName;
+    private List<List<String>> batch;
+
+    @Setup(Level.Trial)
+    public void generate() throws Throwable {
+        tableName = "bench_load_" + distribution + "_" + rows;
+        batch = Tables.rows(rows, Tables.distinctKeys(rows), distribution);
+    }
+
+    @Setup(Level.Iteration)
+    public void recreateTable() throws Throwable {
+        CREATE_TABLE.invokeExact(tableName);
+    }
+
+    @Benchmark
+    public int appendRecords() throws Throwable {
+        return (int) APPEND_RECORDS.invokeExact(tableName, batch);
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// 키 조인 (DBQueryProcessor.executeJoin)
+// fact 테이블은 키당 평균 10행, dim 테이블은 키가 유일하므로 결과 수는 fact 행 수와 같음
+// 통계가 없으면 정렬 가정하에 merge join, ANALYZE 후에는 통계에 따라 merge/hash join 선택
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class MergeJoinBenchmark {
+    private static final MethodHandle EXECUTE_MERGE_JOIN =
+            Storage.find("executeMergeJoin", void.class, String.class, Blackhole.class);
+
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    @Param({"uniform", "skewed"})
+    public String distribution;
+
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        long distinctKeys = Tables.distinctKeys(rows);
+        String fact = Tables.ensure("bench_fact", rows, distinctKeys, distribution);
+        String dim = Tables.ensure("bench_dim", distinctKeys, distinctKeys, "uniform");
+        sql = "select * from " + fact + ", " + dim + " where " + fact + ".key = " + dim + ".key";
+    }
+
+    @Benchmark
+    public void join(Blackhole bh) throws Throwable {
+        EXECUTE_MERGE_JOIN.invokeExact(sql, bh);
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 스냅샷 스캔 비용
+//   fullScan : 첫 필드 전체 추출 (DBStorageManager.extractFieldValues)
+//   rangeScan: 키 공간의 약 10% 범위 검색 (DBStorageManager.getRecordsInRangeFromFile)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ScanBenchmark {
+    private static final MethodHandle EXTRACT_FIELD_VALUES = Storage.find("extractFieldValues", List.class, String.class);
+    private static final MethodHandle GET_RECORDS_IN_RANGE = Storage.find("getRecordsInRangeFromFile", List.class, String.class);
+
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    @Param({"uniform", "skewed"})
+    public String distribution;
+
+    private String metadataPath;
+    private String queryPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        long distinctKeys = Tables.distinctKeys(rows);
+        String tableName = Tables.ensure("bench_scan", rows, distinctKeys, distribution);
+
+        metadataPath = tableName + ".meta.txt";
+        Tables.writeLines(metadataPath, List.of(tableName, "key"));
+
+        long from = distinctKeys * 45 / 100;
+        long to = from + Math.max(1, distinctKeys / 10) - 1;
+        queryPath = tableName + ".query.txt";
+        Tables.writeLines(queryPath, List.of(tableName, Tables.key(from), Tables.key(to)));
+    }
+
+    @Benchmark
+    public int fullScan() throws Throwable {
+        return ((List<?>) EXTRACT_FIELD_VALUES.invokeExact(metadataPath)).size();
+    }
+
+    @Benchmark
+    public int rangeScan() throws Throwable {
+        return ((List<?>) GET_RECORDS_IN_RANGE.invokeExact(queryPath)).size();
+    }
+}
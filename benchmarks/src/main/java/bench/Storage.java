@@ -0,0 +1,30 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// 기본 패키지의 StorageBenchmarkSupport를 MethodHandle로 호출
+// (기본 패키지 클래스는 이름 있는 패키지에서 import할 수 없음)
+final class Storage {
+    private static final Class<?> SUPPORT;
+
+    static {
+        try {
+            SUPPORT = Class.forName("StorageBenchmarkSupport");
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Storage() {
+    }
+
+    static MethodHandle find(String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.publicLookup().findStatic(SUPPORT, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("벤치마크 지원 메서드를 찾을 수 없습니다: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+// 벤치마크 테이블 준비: 이름에 생성 파라미터를 넣어 같은 설정이면 파일을 재사용
+// (SQL 조인 테이블 이름은 \w+ 이어야 하므로 작업 디렉터리에 생성)
+final class Tables {
+    static final long SEED = 20250101L;
+
+    private static final MethodHandle ENSURE_TABLE =
+            Storage.find("ensureTable", void.class, String.class, long.class, long.class, String.class, long.class);
+    private static final MethodHandle GENERATE_ROWS =
+            Storage.find("generateRows", List.class, long.class, long.class, String.class, long.class);
+    private static final MethodHandle KEY = Storage.find("key", String.class, long.class);
+    private static final MethodHandle WRITE_LINES = Storage.find("writeLines", void.class, String.class, List.class);
+
+    private Tables() {
+    }
+
+    static String ensure(String prefix, long rows, long distinctKeys, String distribution) throws Throwable {
+        String name = prefix + "_" + distribution + "_" + rows + "_" + distinctKeys;
+        ENSURE_TABLE.invokeExact(name, rows, distinctKeys, distribution, SEED);
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<List<String>> rows(long rows, long distinctKeys, String distribution) throws Throwable {
+        return (List<List<String>>) (List<?>) GENERATE_ROWS.invokeExact(rows, distinctKeys, distribution, SEED);
+    }
+
+    static String key(long index) throws Throwable {
+        return (String) KEY.invokeExact(index);
+    }
+
+    static void writeLines(String path, List<String> lines) throws Throwable {
+        WRITE_LINES.invokeExact(path, lines);
+    }
+
+    // uniform은 행 10개당 키 1개, skewed는 같은 키 개수에 Zipf 빈도
+    static long distinctKeys(long rows) {
+        return Math.max(1, rows / 10);
+    }
+}
@@ -1,9 +1,32 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,24 +38,51 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSetMetaData;
 import java.sql.ResultSet;
 
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
 
 public class Main {
     public static void main(String[] args) {
         System.setErr(System.out);
+        Metrics.registerMBean();
+
+        // --server [포트]: 메뉴 대신 TCP 질의 서버로 실행
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = (args.length > 1) ? Integer.parseInt(args[1]) : Constants.SERVER_PORT;
+            try {
+                new QueryServer(port).serve();
+            } catch (IOException e) {
+                System.err.println("서버 실행 실패: " + e.getMessage());
+            }
+            return;
+        }
 
         try (Scanner sc = new Scanner(System.in)) {
             while(true) {
                 System.out.println("1. 파일 생성");
                 System.out.println("2. 레코드 삽입");
                 System.out.println("3. 조인 질의");
-                System.out.println("4. 프로그램 종료");
-                System.out.print("원하는 작업을 선택하세요 (1~4): ");
+                System.out.println("4. 통계 수집 (ANALYZE)");
+                System.out.println("5. 성능 지표 출력");
+                System.out.println("6. 프로그램 종료");
+                System.out.print("원하는 작업을 선택하세요 (1~6): ");
 
                 int choice;
                 try {
                     choice = Integer.parseInt(sc.nextLine().trim());
-                    if (choice < 1 || choice > 4) {
-                        System.err.println("[오류] 1부터 4 사이의 숫자를 입력해주세요.\n");
+                    if (choice < 1 || choice > 6) {
+                        System.err.println("[오류] 1부터 6 사이의 숫자를 입력해주세요.\n");
                         continue;
                     }
                 } catch (NumberFormatException e) {
@@ -58,15 +108,27 @@ public class Main {
                             System.out.print("조인 질의 입력: ");
                             String sqlQuery = sc.nextLine();
 
-                            System.out.println(">> 구현 Merge Join 결과:");
+                            System.out.println(">> 구현 조인 결과:");
                             DBQueryProcessor.executeMergeJoin(sqlQuery);
 
                             System.out.println();
                             System.out.println(">> SQL 질의문 수행 결과:");
                             SQLUtil.executeSQLJoinQuery(sqlQuery);
                         }
-
                         case 4 -> {
+                            System.out.print("통계를 수집할 테이블 이름을 입력해주세요: ");
+                            String tableName = sc.nextLine().trim();
+                            TableStatistics stats = DBStorageManager.analyzeTable(tableName);
+                            stats.printStatistics();
+                            System.out.println("통계 수집 완료");
+                        }
+
+                        case 5 -> {
+                            for (String line : Metrics.dump()) {
+                                System.out.println(line);
+                            }
+                        }
+                        case 6 -> {
                             System.out.println("프로그램을 종료합니다.");
                             System.exit(0);
                         }
@@ -88,7 +150,7 @@ public class Main {
                         //         System.out.println(r);
                         //     }
                         // }
-                        default -> System.out.println("유효하지 않은 선택입니다. 1부터 4 사이의 숫자를 입력해주세요.\n");
+                        default -> System.out.println("유효하지 않은 선택입니다. 1부터 6 사이의 숫자를 입력해주세요.\n");
                     }
                 } catch (java.nio.file.NoSuchFileException e) {
                     System.err.println("존재하지 않는 파일입니다.\n");
@@ -106,6 +168,166 @@ public class Main {
     }
 }
 
+// TCP 질의 서버: 연결마다 가상 스레드 하나를 쓰고, 모든 요청이 같은 StorageEngine을 공유
+// 요청은 한 줄 명령, 응답은 ROW/PLAN 줄들 뒤에 OK 또는 ERR 한 줄
+//   CREATE <테이블> <필드:크기> ...
+//   INSERT <테이블> <레코드 수>   (다음 줄부터 레코드 수만큼 공백 구분 필드값, 최대 SERVER_MAX_INSERT_ROWS개)
+//   RANGE <테이블> <최솟값> <최댓값>
+//   JOIN <SQL 질의>       (EXPLAIN ANALYZE로 시작하면 결과 행 대신 실행 기록을 PLAN 줄로 반환)
+//   ANALYZE <테이블>
+//   METRICS              (성능 지표를 METRIC 줄들로 반환)
+//   QUIT
+class QueryServer {
+    private static final Pattern TABLE_NAME = Pattern.compile("\\w+");
+
+    private final int port;
+
+    public QueryServer(int port) {
+        this.port = port;
+    }
+
+    public void serve() throws IOException {
+        serve(bind());
+    }
+
+    // 루프백 주소에만 바인딩 (포트 0이면 비어 있는 포트를 골라 씀)
+    public ServerSocket bind() throws IOException {
+        return new ServerSocket(port, Constants.SERVER_BACKLOG, InetAddress.getLoopbackAddress());
+    }
+
+    // serverSocket이 닫힐 때까지 연결을 받음 (닫히면 진행 중인 연결이 끝나기를 기다린 뒤 예외로 종료)
+    public void serve(ServerSocket serverSocket) throws IOException {
+        try (serverSocket;
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("서버 시작: " + serverSocket.getLocalSocketAddress());
+            while (true) {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> handleConnection(socket));
+            }
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equalsIgnoreCase("QUIT")) {
+                    out.println("OK 연결 종료");
+                    break;
+                }
+
+                try {
+                    execute(line, in, out);
+                } catch (java.nio.file.NoSuchFileException e) {
+                    out.println("ERR 존재하지 않는 테이블입니다: " + e.getMessage());
+                } catch (IOException e) {
+                    out.println("ERR 입출력 오류: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    out.println("ERR 입력 오류: " + e.getMessage());
+                } catch (RuntimeException e) {
+                    out.println("ERR 예상치 못한 오류가 발생했습니다: " + e.getMessage());
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("클라이언트 연결 오류: " + e.getMessage());
+        }
+    }
+
+    private void execute(String line, BufferedReader in, PrintWriter out) throws IOException {
+        String[] tokens = line.split(Constants.DELIMITER);
+        String command = tokens[0].toUpperCase();
+
+        switch (command) {
+            case "CREATE" -> {
+                requireArguments(tokens, 3);
+                String tableName = tableName(tokens[1]);
+                List<String> fieldNames = new ArrayList<>();
+                List<Integer> fieldSizes = new ArrayList<>();
+                for (int i = 2; i < tokens.length; i++) {
+                    String[] field = tokens[i].split(":");
+                    if (field.length != 2) {
+                        throw new IllegalArgumentException("필드는 이름:크기 형식이어야 합니다: " + tokens[i]);
+                    }
+                    fieldNames.add(field[0]);
+                    fieldSizes.add(Integer.parseInt(field[1]));
+                }
+                DBStorageManager.createTable(tableName, fieldNames, fieldSizes);
+                out.println("OK 테이블 생성 완료");
+            }
+            case "INSERT" -> {
+                requireArguments(tokens, 3);
+                String tableName = tableName(tokens[1]);
+                int recordCount = Integer.parseInt(tokens[2]);
+                if (recordCount < 1 || recordCount > Constants.SERVER_MAX_INSERT_ROWS) {
+                    throw new IllegalArgumentException("레코드 수는 1 이상 " + Constants.SERVER_MAX_INSERT_ROWS + " 이하여야 합니다: " + recordCount);
+                }
+
+                // 요청한 개수만큼 미리 할당하지 않고 실제로 받은 줄만큼만 늘림
+                List<List<String>> rows = new ArrayList<>();
+                for (int i = 0; i < recordCount; i++) {
+                    String recordLine = in.readLine();
+                    if (recordLine == null) {
+                        throw new IllegalArgumentException("레코드 개수와 실제 데이터 줄 수가 일치하지 않습니다.");
+                    }
+                    rows.add(List.of(recordLine.trim().split(Constants.DELIMITER)));
+                }
+                int inserted = DBStorageManager.appendRecords(tableName, rows);
+                out.println("OK " + inserted + "개 레코드 삽입 완료");
+            }
+            case "RANGE" -> {
+                requireArguments(tokens, 4);
+                List<Record> records = DBStorageManager.getRecordsInRange(tableName(tokens[1]), tokens[2], tokens[3]);
+                for (Record record : records) {
+                    out.println("ROW " + String.join(", ", record.fields));
+                }
+                out.println("OK " + records.size());
+            }
+            case "JOIN" -> {
+                String sqlQuery = line.substring(command.length()).trim();
+                long[] rowCount = {0};
+                DBQueryProcessor.executeJoin(sqlQuery,
+                        plan -> out.println("PLAN " + plan),
+                        row -> {
+                            out.println("ROW " + String.join(", ", row));
+                            rowCount[0]++;
+                        });
+                out.println("OK " + rowCount[0]);
+            }
+            case "ANALYZE" -> {
+                requireArguments(tokens, 2);
+                TableStatistics stats = DBStorageManager.analyzeTable(tableName(tokens[1]));
+                out.println("OK " + stats.rowCount);
+            }
+            case "METRICS" -> {
+                for (String metric : Metrics.dump()) {
+                    out.println("METRIC " + metric);
+                }
+                out.println("OK");
+            }
+            default -> throw new IllegalArgumentException("지원하지 않는 명령입니다: " + tokens[0]);
+        }
+    }
+
+    private static void requireArguments(String[] tokens, int count) {
+        if (tokens.length < count) {
+            throw new IllegalArgumentException(tokens[0].toUpperCase() + " 명령의 인자가 부족합니다.");
+        }
+    }
+
+    // 네트워크로 받은 이름이 작업 디렉토리 밖의 파일을 가리키지 않도록 제한
+    private static String tableName(String name) {
+        if (!TABLE_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("잘못된 테이블 이름입니다: " + name);
+        }
+        return name;
+    }
+}
+
 class DBStorageManager {
     public static void createFileHeader(String fileDataFile) throws IOException {
         List<String> lines = Files.readAllLines(Paths.get(fileDataFile));
@@ -115,7 +337,6 @@ class DBStorageManager {
         }
 
         String rawFilename = lines.get(0).trim();
-        String outputFilename = rawFilename.toLowerCase().endsWith(Constants.FILE_EXTENSION) ? rawFilename : rawFilename + Constants.FILE_EXTENSION;
 
         int fieldCount = Integer.parseInt(lines.get(1).trim());
 
@@ -129,17 +350,54 @@ class DBStorageManager {
             throw new IllegalArgumentException("필드 개수와 이름/크기 수가 일치하지 않습니다.");
         }
 
+        createTable(rawFilename, fieldNames, fieldSizes);
+        SQLUtil.createMySQLTable(rawFilename, fieldNames, fieldSizes);
+    }
+
+    // 빈 테이블 파일 생성 (같은 이름의 파일이 있으면 비우고 새로 만듦)
+    public static void createTable(String tableName, List<String> fieldNames, List<Integer> fieldSizes) throws IOException {
+        String outputFilename = tableName.toLowerCase().endsWith(Constants.FILE_EXTENSION) ? tableName : tableName + Constants.FILE_EXTENSION;
+
+        if (fieldNames.isEmpty() || fieldNames.size() != fieldSizes.size()) {
+            throw new IllegalArgumentException("필드 이름과 크기의 개수가 맞지 않습니다.");
+        }
+        long headerSize = 4 + 4 + 4 + 4 + (long) (Constants.FIXED_FIELD_NAME_SIZE + 4) * fieldNames.size() + 4 + 8;
+        if (fieldNames.size() > 8 || headerSize > Constants.BLOCK_SIZE) {
+            throw new IllegalArgumentException("필드 개수가 너무 많습니다: " + fieldNames.size());
+        }
+
+        // 레코드는 블록을 넘어 나뉘지 않으므로 null이 없는 레코드 하나가 블록 하나에 들어가야 함
+        for (int size : fieldSizes) {
+            if (size < 1) {
+                throw new IllegalArgumentException("필드 크기는 1 이상이어야 합니다: " + size);
+            }
+        }
+        long recordSize = Record.maxSize(fieldSizes);
+        if (recordSize > Constants.BLOCK_SIZE - Constants.BLOCK_HEADER_SIZE) {
+            throw new IllegalArgumentException("레코드가 블록 하나에 들어가지 않습니다: " + recordSize
+                    + " bytes (최대 " + (Constants.BLOCK_SIZE - Constants.BLOCK_HEADER_SIZE) + " bytes)");
+        }
+
         File header = new File();
         header.fieldNames = fieldNames;
         header.fieldSizes = fieldSizes;
         header.recordCount = 0;
         header.firstBlockOffset = Constants.BLOCK_SIZE;
 
+        StorageEngine engine = StorageEngine.shared();
+        TableLatch latch = engine.latchFor(outputFilename);
+        latch.lockFile();
+        latch.writerLock.lock();
         try (RandomAccessFile raf = new RandomAccessFile(outputFilename, "rw")) {
-            header.writeFileHeader(raf);
+            // 이전 블록이 남아 있으면 새 트랜잭션 id와 겹쳐 보일 수 있으므로 비움
+            raf.setLength(0);
+            Files.deleteIfExists(Paths.get(tableName + Constants.STATS_EXTENSION));
+
+            engine.invalidate(outputFilename);
+            latch.writeHeader(raf, header);
+        } finally {
+            latch.writerLock.unlock();
         }
-
-        SQLUtil.createMySQLTable(rawFilename, fieldNames, fieldSizes);
     }
 
     public static void insertRecords(String recordDataFile) throws IOException {
@@ -149,37 +407,88 @@ class DBStorageManager {
         }
 
         String fileBaseName = lines.get(0).trim();
-        String filename = fileBaseName + Constants.FILE_EXTENSION;
         int recordCount = Integer.parseInt(lines.get(1).trim());
+        List<String> recordLines = lines.subList(2, lines.size());
+
+        if (recordLines.size() != recordCount) {
+            throw new IllegalArgumentException("레코드 개수와 실제 데이터 줄 수가 일치하지 않습니다.");
+        }
+
+        List<List<String>> rows = new ArrayList<>();
+        for (String recordLine : recordLines) {
+            rows.add(List.of(recordLine.split(Constants.DELIMITER)));
+        }
+
+        appendRecords(fileBaseName, rows);
+
+        // 저장소에 커밋된 뒤에 MySQL에도 반영
+        for (List<String> fields : rows) {
+            SQLUtil.insertTuple(fileBaseName, fields);
+        }
 
-        try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+        System.out.println(recordCount + "개 레코드 삽입 완료!");
+    }
+
+    // 레코드 묶음을 하나의 트랜잭션으로 삽입 ("null" 문자열은 널 필드로 저장)
+    public static int appendRecords(String tableName, List<List<String>> rows) throws IOException {
+        String filename = tableName + Constants.FILE_EXTENSION;
+
+        // 한 테이블에는 한 번에 하나의 writer만 허용 (reader는 계속 진행 가능)
+        StorageEngine engine = StorageEngine.shared();
+        TableLatch latch = engine.open(filename);
+        long start = System.nanoTime();
+        latch.writerLock.lock();
+        RandomAccessFile raf = null;
+        try {
+            raf = engine.handles.acquire(latch.path, "rw");
             File header = new File();
-            header.readFileHeader(raf);
+            latch.readHeader(raf, header);
 
             int fieldCount = header.fieldNames.size();
-            List<String> recordLines = lines.subList(2, lines.size());
 
-            if (recordLines.size() != recordCount) {
-                throw new IllegalArgumentException("레코드 개수와 실제 데이터 줄 수가 일치하지 않습니다.");
+            // 이전 트랜잭션이 완료되지 못하고 남긴 레코드가 있으면 먼저 정리
+            if (header.activeTxnId != 0) {
+                VersionGarbageCollector.collect(raf, header, latch);
             }
 
-            for (int i = 0; i < recordCount; i++) {
-                List<String> fields = List.of(recordLines.get(i).split(Constants.DELIMITER));
-                if (fields.size() != fieldCount) {
-                    throw new IllegalArgumentException("레코드 " + (i + 1) + "의 필드 개수가 맞지 않습니다: 기대 " + fieldCount + ", 실제 " + fields.size());
-                }
+            // 삽입 전체를 하나의 트랜잭션으로 처리: 커밋 전까지 reader의 스냅샷에는 보이지 않음
+            int txnId = header.committedTxnId + 1;
+            header.activeTxnId = txnId;
+            latch.writeHeader(raf, header);
 
-                List<String> recordFields = new ArrayList<>();
-                for (String field : fields) {
-                    recordFields.add(field.equalsIgnoreCase("null") ? null : field);
-                }
-                SQLUtil.insertTuple(fileBaseName, fields);
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    List<String> fields = rows.get(i);
+                    if (fields.size() != fieldCount) {
+                        throw new IllegalArgumentException("레코드 " + (i + 1) + "의 필드 개수가 맞지 않습니다: 기대 " + fieldCount + ", 실제 " + fields.size());
+                    }
+
+                    List<String> recordFields = new ArrayList<>();
+                    for (String field : fields) {
+                        recordFields.add(field.equalsIgnoreCase("null") ? null : field);
+                    }
 
-                Record rec = new Record(recordFields);
-                header.addRecord(raf, rec);
+                    Record rec = new Record(recordFields);
+                    rec.createdTxn = txnId;
+                    header.addRecord(raf, rec, latch);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 중단된 트랜잭션이 기록한 레코드 제거
+                Metrics.TXN_ABORTED.increment();
+                VersionGarbageCollector.collect(raf, header, latch);
+                throw e;
             }
 
-            System.out.println(recordCount + "개 레코드 삽입 완료!");
+            // 커밋
+            header.committedTxnId = txnId;
+            header.activeTxnId = 0;
+            latch.writeHeader(raf, header);
+            Metrics.RECORDS_INSERTED.add(rows.size());
+            return rows.size();
+        } finally {
+            if (raf != null) engine.handles.release(latch.path, "rw", raf);
+            latch.writerLock.unlock();
+            Metrics.APPEND.recordSince(start);
         }
     }
 
@@ -194,24 +503,22 @@ class DBStorageManager {
 
         List<String> extractedValues = new ArrayList<>();
 
-        try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
-            File header = new File();
-            header.readFileHeader(raf);
-
-            int fieldIndex = header.fieldNames.indexOf(targetField);
+        long start = System.nanoTime();
+        try (TableScan scan = StorageEngine.shared().openScan(filename)) {
+            int fieldIndex = scan.header.fieldNames.indexOf(targetField);
             if (fieldIndex == -1) {
                 throw new IllegalArgumentException("지정한 필드명이 존재하지 않습니다: " + targetField);
             }
 
-            int currentBlockOffset = header.firstBlockOffset;
-            while (currentBlockOffset != -1) {
-                Block block = Block.readBlock(raf, currentBlockOffset, header.fieldSizes);
+            Block block;
+            while ((block = scan.nextBlock()) != null) {
                 for (Record r : block.records) {
                     String value = r.fields.get(fieldIndex);
                     extractedValues.add(Objects.requireNonNullElse(value, "null"));
                 }
-                currentBlockOffset = block.nextBlockOffset;
             }
+        } finally {
+            Metrics.FIELD_SCAN.recordSince(start);
         }
 
         return extractedValues;
@@ -224,38 +531,116 @@ class DBStorageManager {
         }
 
         String fileBaseName = lines.get(0).trim();
-        String filename = fileBaseName + Constants.FILE_EXTENSION;
-
         String minKey = lines.get(1).trim();
         String maxKey = lines.get(2).trim();
 
-        List<Record> result = new ArrayList<>();
+        return getRecordsInRange(fileBaseName, minKey, maxKey);
+    }
 
-        try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
-            File header = new File();
-            header.readFileHeader(raf);
+    // 첫 필드(서치키)가 [minKey, maxKey] 범위에 있는 레코드 조회
+    public static List<Record> getRecordsInRange(String fileBaseName, String minKey, String maxKey) throws IOException {
+        String filename = fileBaseName + Constants.FILE_EXTENSION;
+        List<Record> result;
+
+        long start = System.nanoTime();
+        long compared = 0;
+        try (TableScan scan = StorageEngine.shared().openScan(filename)) {
+            File header = scan.header;
+
+            // 최신 통계가 있으면 범위가 [최솟값, 최댓값]을 벗어날 때만 스캔을 생략하고,
+            // 선택도 추정치(표본 기반이라 0일 수도 있음)는 결과 크기를 미리 잡는 데만 사용
+            TableStatistics stats = StorageEngine.shared().statisticsFor(fileBaseName);
+            if (stats != null && stats.isFreshFor(header)) {
+                ColumnStatistics keyStats = stats.columns.getFirst();
+                if (keyStats.excludesRange(minKey, maxKey)) {
+                    return new ArrayList<>();
+                }
+                double selectivity = keyStats.estimateRangeSelectivity(minKey, maxKey);
+                result = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(selectivity * stats.rowCount)));
+            } else {
+                result = new ArrayList<>();
+            }
 
-            int currentBlockOffset = header.firstBlockOffset;
-            while (currentBlockOffset != -1) {
-                Block block = Block.readBlock(raf, currentBlockOffset, header.fieldSizes);
+            Block block;
+            while ((block = scan.nextBlock()) != null) {
+                compared += block.records.size();
                 for (Record record : block.records) {
                     String key = record.fields.get(0); // 첫 필드를 서치키로 간주
                     if (key != null && key.compareTo(minKey) >= 0 && key.compareTo(maxKey) <= 0) {
                         result.add(record);
                     }
                 }
-                currentBlockOffset = block.nextBlockOffset;
             }
+        } finally {
+            Metrics.RECORDS_COMPARED.add(compared);
+            Metrics.RANGE_SCAN.recordSince(start);
         }
 
         return result;
     }
 
+    // ANALYZE: 블록 체인을 한 번 순회하며 컬럼별 통계를 병렬로 수집하고 .stats 파일로 저장
+    public static TableStatistics analyzeTable(String tableName) throws IOException {
+        String filename = tableName + Constants.FILE_EXTENSION;
+
+        TableStatistics stats;
+        long start = System.nanoTime();
+        try (TableScan scan = StorageEngine.shared().openScan(filename)) {
+            File header = scan.header;
+
+            List<ColumnAnalyzer> analyzers = new ArrayList<>();
+            for (int i = 0; i < header.fieldNames.size(); i++) {
+                analyzers.add(new ColumnAnalyzer(header.fieldNames.get(i)));
+            }
+
+            long rowCount = 0;
+            List<Record> batch = new ArrayList<>(Constants.ANALYZE_BATCH_SIZE);
+            Block block;
+            while ((block = scan.nextBlock()) != null) {
+                rowCount += block.records.size();
+                batch.addAll(block.records);
+                if (batch.size() >= Constants.ANALYZE_BATCH_SIZE) {
+                    ColumnAnalyzer.addBatch(analyzers, batch);
+                    batch = new ArrayList<>(Constants.ANALYZE_BATCH_SIZE);
+                }
+            }
+            ColumnAnalyzer.addBatch(analyzers, batch);
+
+            List<ColumnStatistics> columns = new ArrayList<>();
+            for (ColumnAnalyzer analyzer : analyzers) {
+                columns.add(analyzer.finish());
+            }
+            stats = new TableStatistics(scan.snapshotTxnId, rowCount, columns);
+        }
+
+        stats.save(tableName);
+        StorageEngine.shared().latchFor(filename).cacheStatistics(stats);
+        Metrics.ANALYZE.recordSince(start);
+        return stats;
+    }
+
     private DBStorageManager() {}
 }
 
 class DBQueryProcessor {
+    private static final Pattern EXPLAIN_ANALYZE = Pattern.compile("^\\s*explain\\s+analyze\\s", Pattern.CASE_INSENSITIVE);
+    private static final double HASH_BUILD_COST = 2.0;   // 레코드 하나를 해시 테이블에 넣는 비용 (순차 읽기 1 기준)
+    private static final double SORT_COST = 1.0;         // 정렬 중 키 비교 한 번의 비용
+
     public static void executeMergeJoin(String sqlQuery) throws IOException {
+        // 첫 줄만 조인 전략이고, EXPLAIN ANALYZE의 나머지 줄(들여쓴 세부 기록)은 그대로 출력
+        boolean[] strategyLine = {true};
+        executeJoin(sqlQuery,
+                plan -> {
+                    System.out.println(strategyLine[0] ? ">> 조인 전략: " + plan : plan);
+                    strategyLine[0] = false;
+                },
+                row -> System.out.println(String.join(", ", row)));
+    }
+
+    // 조인 결과를 rowSink로 전달 (통계로 전략을 정했다면 planSink로 먼저 알림)
+    // EXPLAIN ANALYZE로 시작하면 조인을 끝까지 수행하되 결과 행 대신 실행 기록을 planSink로 보고
+    public static void executeJoin(String sqlQuery, Consumer<String> planSink, Consumer<List<String>> rowSink) throws IOException {
         Pattern pattern = Pattern.compile(
                 "from\\s+(\\w+)\\s*,\\s*(\\w+)\\s+where\\s+(\\w+)\\.(\\w+)\\s*=\\s*(\\w+)\\.(\\w+)(?:\\s+order\\s+by\\s+(\\w+))?",
                 Pattern.CASE_INSENSITIVE);
@@ -265,6 +650,11 @@ class DBQueryProcessor {
             throw new IllegalArgumentException("SQL 문법이 잘못되었거나 지원되지 않는 문법입니다.");
         }
 
+        boolean explainAnalyze = EXPLAIN_ANALYZE.matcher(sqlQuery).find();
+        if (explainAnalyze) {
+            rowSink = row -> {};
+        }
+
         String tableA = matcher.group(1);
         String tableB = matcher.group(2);
 
@@ -287,110 +677,281 @@ class DBQueryProcessor {
         String fileAPath = tableA + Constants.FILE_EXTENSION;
         String fileBPath = tableB + Constants.FILE_EXTENSION;
 
-        try (RandomAccessFile rafA = new RandomAccessFile(fileAPath, "r");
-            RandomAccessFile rafB = new RandomAccessFile(fileBPath, "r")) {
+        QueryProfile profile = new QueryProfile();
+        TableScan[] scans = StorageEngine.shared().openScans(fileAPath, fileBPath);
+        try (TableScan scanA = scans[0];
+            TableScan scanB = scans[1]) {
 
-            File headerA = new File(); headerA.readFileHeader(rafA);
-            File headerB = new File(); headerB.readFileHeader(rafB);
+            File headerA = scanA.header;
+            File headerB = scanB.header;
 
             int indexA = headerA.fieldNames.indexOf(keyA);
             int indexB = headerB.fieldNames.indexOf(keyB);
+            if (indexA == -1 || indexB == -1) {
+                throw new IllegalArgumentException("조인 키가 존재하지 않습니다: " + (indexA == -1 ? keyA : keyB));
+            }
 
-            int offsetA = headerA.firstBlockOffset;
-            int offsetB = headerB.firstBlockOffset;
-
-            Block blockA = (offsetA != -1) ? Block.readBlock(rafA, offsetA, headerA.fieldSizes) : null;
-            Block blockB = (offsetB != -1) ? Block.readBlock(rafB, offsetB, headerB.fieldSizes) : null;
-
-            List<Record> recordsA = (blockA != null) ? blockA.records : List.of();
-            List<Record> recordsB = (blockB != null) ? blockB.records : List.of();
-
-            int idxA = 0, idxB = 0;
+            // 최신 통계가 있으면 비용으로 조인 전략과 hash join의 build 쪽을 결정
+            TableStatistics statsA = StorageEngine.shared().statisticsFor(tableA);
+            TableStatistics statsB = StorageEngine.shared().statisticsFor(tableB);
+            if (statsA != null && statsA.isFreshFor(headerA) && statsB != null && statsB.isFreshFor(headerB)) {
+                ColumnStatistics colA = statsA.columns.get(indexA);
+                ColumnStatistics colB = statsB.columns.get(indexB);
+                long estimated = TableStatistics.estimateJoinCardinality(statsA, indexA, statsB, indexB);
+                profile.estimatedRows = estimated;
+
+                // 결과 행을 만드는 비용(예상 결과 수)은 두 전략이 같으므로 비교하지 않음
+                // hash join: 두 테이블을 끝까지 읽고, build 쪽에서 키가 있는 레코드를 해시 테이블에 넣음
+                double keyedA = statsA.rowCount * (1.0 - colA.nullFraction);
+                double keyedB = statsB.rowCount * (1.0 - colB.nullFraction);
+                double hashCostA = statsA.rowCount + statsB.rowCount + HASH_BUILD_COST * keyedA;
+                double hashCostB = statsA.rowCount + statsB.rowCount + HASH_BUILD_COST * keyedB;
+                double mergeCost = mergeInputCost(statsA, colA, colB) + mergeInputCost(statsB, colB, colA);
+
+                profile.hashJoin = mergeCost > Math.min(hashCostA, hashCostB);
+                profile.buildOnA = hashCostA <= hashCostB;
+                profile.sortA = !colA.sorted;
+                profile.sortB = !colB.sorted;
+
+                if (!explainAnalyze) {
+                    planSink.accept(profile.strategy() + " (예상 결과 수: " + estimated + ")");
+                }
+                if (profile.hashJoin) {
+                    ColumnStatistics buildColumn = profile.buildOnA ? colA : colB;
+                    executeHashJoin(scanA, indexA, scanB, indexB, profile.buildOnA, buildColumn.distinctCount, profile, rowSink);
+                } else {
+                    mergeJoin(new MergeInput(scanA, indexA, profile.sortA), new MergeInput(scanB, indexB, profile.sortB), profile, rowSink);
+                }
+            } else {
+                // 통계가 없으면 두 테이블이 이미 조인 키 순서로 정렬되어 있다고 봄
+                mergeJoin(new MergeInput(scanA, indexA, false), new MergeInput(scanB, indexB, false), profile, rowSink);
+            }
 
-            while (blockA != null && blockB != null) {
-                if (idxA >= recordsA.size()) {
-                    offsetA = blockA.nextBlockOffset;
-                    blockA = (offsetA != -1) ? Block.readBlock(rafA, offsetA, headerA.fieldSizes) : null;
-                    recordsA = (blockA != null) ? blockA.records : List.of();
-                    idxA = 0;
-                    continue;
+            if (explainAnalyze) {
+                for (String line : profile.explain(tableA, scanA, tableB, scanB)) {
+                    planSink.accept(line);
                 }
+            }
+        } finally {
+            profile.publish();
+        }
+    }
 
-                if (idxB >= recordsB.size()) {
-                    offsetB = blockB.nextBlockOffset;
-                    blockB = (offsetB != -1) ? Block.readBlock(rafB, offsetB, headerB.fieldSizes) : null;
-                    recordsB = (blockB != null) ? blockB.records : List.of();
-                    idxB = 0;
-                    continue;
+    // merge join에서 한쪽 입력을 읽는 비용
+    // 정렬되지 않은 쪽은 전체를 읽어 정렬 (비교 n log2 n회), 정렬된 쪽은 상대 입력이 끝나는 지점까지만 읽음
+    // (상대 키의 최댓값까지 읽을 비율을 히스토그램으로 추정)
+    private static double mergeInputCost(TableStatistics stats, ColumnStatistics column, ColumnStatistics other) {
+        if (!column.sorted) {
+            double keyed = stats.rowCount * (1.0 - column.nullFraction);
+            return stats.rowCount + SORT_COST * keyed * (Math.log(Math.max(keyed, 2.0)) / Math.log(2.0));
+        }
+        if (column.maxValue == null || other.maxValue == null || other.maxValue.compareTo(column.maxValue) >= 0) {
+            return stats.rowCount;
+        }
+        double keyedFraction = column.estimateRangeSelectivity(column.minValue, other.maxValue) / (1.0 - column.nullFraction);
+        return stats.rowCount * Math.min(1.0, keyedFraction);
+    }
+
+    // merge join 입력: 조인 키 순서로 키가 null이 아닌 레코드를 하나씩 내줌
+    // 정렬된 입력은 블록 체인을 그대로 따라가고, 정렬되지 않은 입력은 먼저 모두 읽어 메모리에서 정렬
+    private static final class MergeInput {
+        final int keyIndex;
+        private final TableScan scan;
+        private Iterator<Record> sorted;
+        private List<Record> records = List.of();
+        private int index;
+
+        MergeInput(TableScan scan, int keyIndex, boolean sort) throws IOException {
+            this.scan = scan;
+            this.keyIndex = keyIndex;
+            if (sort) {
+                List<Record> all = new ArrayList<>();
+                Record record;
+                while ((record = nextFromScan()) != null) {
+                    all.add(record);
                 }
+                all.sort(Comparator.comparing(r -> r.fields.get(keyIndex)));
+                this.sorted = all.iterator();
+            }
+        }
 
-                Record ra = recordsA.get(idxA);
-                Record rb = recordsB.get(idxB);
+        String key(Record record) {
+            return record.fields.get(keyIndex);
+        }
 
-                String keyValA = ra.fields.get(indexA);
-                String keyValB = rb.fields.get(indexB);
-                int cmp = keyValA.compareTo(keyValB);
+        // 다음 레코드, 끝이면 null
+        Record next() throws IOException {
+            if (sorted != null) {
+                return sorted.hasNext() ? sorted.next() : null;
+            }
+            return nextFromScan();
+        }
 
-                if (cmp < 0) {
-                    idxA++;
-                } else if (cmp > 0) {
-                    idxB++;
-                } else {
-                    // matchKey 기준 그룹 수집
-                    String matchKey = keyValA;
-                    List<Record> groupA = new ArrayList<>();
-                    List<Record> groupB = new ArrayList<>();
-
-                    // A 그룹 수집
-                    while (blockA != null) {
-                        while (idxA < recordsA.size()) {
-                            Record r = recordsA.get(idxA);
-                            if (!r.fields.get(indexA).equals(matchKey)) break;
-                            groupA.add(r);
-                            idxA++;
-                        }
-                        if (idxA < recordsA.size()) break;
-                        offsetA = blockA.nextBlockOffset;
-                        blockA = (offsetA != -1) ? Block.readBlock(rafA, offsetA, headerA.fieldSizes) : null;
-                        recordsA = (blockA != null) ? blockA.records : List.of();
-                        idxA = 0;
-                        if (recordsA.isEmpty()) break;
-                        if (!recordsA.get(0).fields.get(indexA).equals(matchKey)) break;
-                    }
+        private Record nextFromScan() throws IOException {
+            while (true) {
+                while (index >= records.size()) {
+                    Block block = scan.nextBlock();
+                    if (block == null) return null;
+                    records = block.records;
+                    index = 0;
+                }
+                Record record = records.get(index++);
+                // null 키는 어떤 값과도 같지 않으므로 건너뜀
+                if (key(record) != null) return record;
+            }
+        }
+    }
 
-                    // B 그룹 수집
-                    while (blockB != null) {
-                        while (idxB < recordsB.size()) {
-                            Record r = recordsB.get(idxB);
-                            if (!r.fields.get(indexB).equals(matchKey)) break;
-                            groupB.add(r);
-                            idxB++;
-                        }
-                        if (idxB < recordsB.size()) break;
-                        offsetB = blockB.nextBlockOffset;
-                        blockB = (offsetB != -1) ? Block.readBlock(rafB, offsetB, headerB.fieldSizes) : null;
-                        recordsB = (blockB != null) ? blockB.records : List.of();
-                        idxB = 0;
-                        if (recordsB.isEmpty()) break;
-                        if (!recordsB.get(0).fields.get(indexB).equals(matchKey)) break;
+    // 두 입력을 키 순서로 함께 읽으며 같은 키의 묶음끼리 곱해 출력 (한쪽이 끝나면 종료)
+    private static void mergeJoin(MergeInput inputA, MergeInput inputB,
+                                  QueryProfile profile, Consumer<List<String>> rowSink) throws IOException {
+        Record ra = inputA.next();
+        Record rb = inputB.next();
+
+        while (ra != null && rb != null) {
+            String keyValA = inputA.key(ra);
+            int cmp = keyValA.compareTo(inputB.key(rb));
+            profile.comparisons++;
+
+            if (cmp < 0) {
+                ra = inputA.next();
+            } else if (cmp > 0) {
+                rb = inputB.next();
+            } else {
+                // matchKey 기준 그룹 수집
+                String matchKey = keyValA;
+                List<Record> groupA = new ArrayList<>();
+                List<Record> groupB = new ArrayList<>();
+
+                do {
+                    groupA.add(ra);
+                    ra = inputA.next();
+                    profile.comparisons++;
+                } while (ra != null && matchKey.equals(inputA.key(ra)));
+
+                do {
+                    groupB.add(rb);
+                    rb = inputB.next();
+                    profile.comparisons++;
+                } while (rb != null && matchKey.equals(inputB.key(rb)));
+
+                // Cross product
+                for (Record a : groupA) {
+                    for (Record b : groupB) {
+                        emitJoinedRecord(a, b, profile, rowSink);
                     }
+                }
+            }
+        }
+    }
 
-                    // Cross product
-                    for (Record a : groupA) {
-                        for (Record b : groupB) {
-                            List<String> joined = new ArrayList<>(a.fields);
-                            joined.addAll(b.fields);
-                            System.out.println(String.join(", ", joined));
-                        }
+    // Hash Join: 통계로 정한 build 쪽으로 해시 테이블을 만들고 다른 쪽으로 탐색
+    private static void executeHashJoin(TableScan scanA, int indexA, TableScan scanB, int indexB,
+                                        boolean buildOnA, long buildDistinct,
+                                        QueryProfile profile, Consumer<List<String>> rowSink) throws IOException {
+        TableScan buildScan = buildOnA ? scanA : scanB;
+        int buildIndex = buildOnA ? indexA : indexB;
+
+        TableScan probeScan = buildOnA ? scanB : scanA;
+        int probeIndex = buildOnA ? indexB : indexA;
+
+        // 서로 다른 키 개수 추정치로 해시 테이블 크기를 미리 잡아 재해싱 방지
+        int capacity = (int) Math.min(1 << 30, buildDistinct * 4 / 3 + 1);
+        Map<String, List<Record>> hashTable = new HashMap<>(capacity);
+
+        long buildStart = System.nanoTime();
+        Block block;
+        while ((block = buildScan.nextBlock()) != null) {
+            for (Record r : block.records) {
+                String key = r.fields.get(buildIndex);
+                if (key != null) {
+                    hashTable.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+                }
+            }
+        }
+        profile.buildNanos = System.nanoTime() - buildStart;
+
+        while ((block = probeScan.nextBlock()) != null) {
+            for (Record probe : block.records) {
+                String key = probe.fields.get(probeIndex);
+                List<Record> matches = (key != null) ? hashTable.get(key) : null;
+                profile.hashProbes++;
+                if (matches == null) continue;
+
+                for (Record match : matches) {
+                    if (buildOnA) {
+                        emitJoinedRecord(match, probe, profile, rowSink);
+                    } else {
+                        emitJoinedRecord(probe, match, profile, rowSink);
                     }
                 }
             }
         }
     }
 
+    private static void emitJoinedRecord(Record a, Record b, QueryProfile profile, Consumer<List<String>> rowSink) {
+        List<String> joined = new ArrayList<>(a.fields);
+        joined.addAll(b.fields);
+        profile.outputRows++;
+        rowSink.accept(joined);
+    }
+
     private DBQueryProcessor() {}
 }
 
+// 조인 한 번의 실행 기록: 질의를 수행하는 스레드만 갱신하고, 끝나면 전역 지표에 한 번에 더함
+class QueryProfile {
+    private final long startNanos = System.nanoTime();
+    long estimatedRows = -1;    // 최신 통계가 없으면 -1
+    boolean hashJoin;
+    boolean buildOnA;           // hash join에서 첫 번째 테이블로 해시 테이블을 만들었는지
+    boolean sortA;              // merge join 전에 첫 번째 테이블을 메모리에서 정렬했는지
+    boolean sortB;
+    long buildNanos;
+    long comparisons;           // merge join 키 비교 횟수
+    long hashProbes;            // hash join 탐색 횟수
+    long outputRows;
+
+    String strategy() {
+        return hashJoin ? "Hash Join" : "Merge Join";
+    }
+
+    void publish() {
+        Metrics.RECORDS_COMPARED.add(comparisons + hashProbes);
+        Metrics.JOIN_ROWS.add(outputRows);
+        Metrics.JOIN.recordSince(startNanos);
+    }
+
+    // EXPLAIN ANALYZE 출력
+    List<String> explain(String tableA, TableScan scanA, String tableB, TableScan scanB) {
+        double elapsedMillis = (System.nanoTime() - startNanos) / 1e6;
+        String estimated = (estimatedRows < 0) ? "통계 없음" : String.valueOf(estimatedRows);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s (예상 결과 수: %s, 실제 결과 수: %d, 실행 시간: %.3f ms)",
+                strategy(), estimated, outputRows, elapsedMillis));
+        if (hashJoin) {
+            lines.add(String.format("  해시 테이블 구성: %s, %.3f ms / 탐색: %d회",
+                    buildOnA ? tableA : tableB, buildNanos / 1e6, hashProbes));
+        } else {
+            List<String> sortedTables = new ArrayList<>();
+            if (sortA) sortedTables.add(tableA);
+            if (sortB) sortedTables.add(tableB);
+            lines.add("  키 비교: " + comparisons + "회"
+                    + (sortedTables.isEmpty() ? "" : " / 병합 전 정렬: " + String.join(", ", sortedTables)));
+        }
+        lines.add(describeScan(tableA, scanA));
+        lines.add(describeScan(tableB, scanB));
+        return lines;
+    }
+
+    private static String describeScan(String tableName, TableScan scan) {
+        return String.format("  -> Seq Scan %s (스냅샷 txn %d): 블록 %d개, 레코드 %d개 중 %d개 보임, 블록 읽기 %.3f ms, 선읽기 적중 %d / 요청 %d / 낭비 %d",
+                tableName, scan.snapshotTxnId, scan.blocksRead, scan.recordsRead, scan.recordsVisible, scan.readNanos / 1e6,
+                scan.readAhead.hits, scan.readAhead.issued, scan.readAhead.wasted);
+    }
+}
+
 class SQLUtil {
     public static void createMySQLTable(String tableName, List<String> fieldNames, List<Integer> fieldSizes) {
         StringBuilder sb = new StringBuilder();
@@ -406,21 +967,26 @@ class SQLUtil {
 
         sb.append(");");
 
+        long start = System.nanoTime();
         try (
             Connection conn = DriverManager.getConnection(Constants.JDBC_URL, Constants.JDBC_USER, Constants.JDBC_PASSWORD);
             Statement stmt = conn.createStatement()
         ) {
             stmt.executeUpdate(sb.toString());
         } catch (SQLException e) {
+            Metrics.JDBC_ERRORS.increment();
             System.err.println("MySQL 테이블 생성 실패: " + e.getMessage());
+        } finally {
+            Metrics.JDBC.recordSince(start);
         }
     }
 
     // 튜플 삽입 기능
     public static void insertTuple(String tableName, List<String> values) {
-        String placeholders = String.join(", ", values.stream().map(_ -> "?").toArray(String[]::new));
+        String placeholders = String.join(", ", values.stream().map(v -> "?").toArray(String[]::new));
         String query = "INSERT INTO `" + tableName + "` VALUES (" + placeholders + ")";
 
+        long start = System.nanoTime();
         try (
             Connection conn = DriverManager.getConnection(Constants.JDBC_URL, Constants.JDBC_USER, Constants.JDBC_PASSWORD);
             PreparedStatement pstmt = conn.prepareStatement(query)
@@ -430,12 +996,16 @@ class SQLUtil {
             }
             pstmt.executeUpdate();
         } catch (SQLException e) {
+            Metrics.JDBC_ERRORS.increment();
             System.err.println("튜플 삽입 실패: " + e.getMessage());
+        } finally {
+            Metrics.JDBC.recordSince(start);
         }
     }
 
     // SQL 질의문 수행 및 결과 출력
     public static void executeSQLJoinQuery(String sqlQuery) {
+        long start = System.nanoTime();
         try (
             Connection conn = DriverManager.getConnection(Constants.JDBC_URL, Constants.JDBC_USER, Constants.JDBC_PASSWORD);
             Statement stmt = conn.createStatement();
@@ -452,146 +1022,1091 @@ class SQLUtil {
                 System.out.println();
             }
         } catch (SQLException e) {
+            Metrics.JDBC_ERRORS.increment();
             System.err.println("SQL JOIN 수행 실패: " + e.getMessage());
+        } finally {
+            Metrics.JDBC.recordSince(start);
         }
     }
 
     private SQLUtil() {}
 }
 
-class File {
-    int recordCount;
-    List<String> fieldNames;
-    List<Integer> fieldSizes;
-    int firstBlockOffset;
+// 여러 세션이 공유하는 저장소 엔진: 같은 .bin 파일에는 항상 같은 래치 집합을 사용
+// 테이블별 스키마/통계(카탈로그)와 열린 파일 핸들도 여기서 재사용
+// 래치는 프로세스 안에서만 동작하므로, 테이블을 처음 여는 프로세스가 파일 잠금을 잡아 다른 프로세스의 접근을 막음
+class StorageEngine {
+    private static final StorageEngine SHARED = new StorageEngine();
 
-    public File() {
-        this.recordCount = 0;
-        this.fieldNames = new ArrayList<>();
-        this.fieldSizes = new ArrayList<>();
-        this.firstBlockOffset = -1;
+    private final ConcurrentHashMap<String, TableLatch> latches = new ConcurrentHashMap<>();
+    final HandlePool handles = new HandlePool(Constants.MAX_IDLE_HANDLES, Constants.MAX_BORROWED_HANDLES);
+
+    // 스캔 선읽기 전용 I/O 스레드 (파일 읽기는 블로킹이므로 가상 스레드 대신 작은 고정 풀)
+    // 밀린 요청 수를 보고 선읽기를 다시 시작할지 정하므로 큐에 접근할 수 있는 ThreadPoolExecutor로 둠
+    final ThreadPoolExecutor readAheadPool = new ThreadPoolExecutor(Constants.READ_AHEAD_THREADS, Constants.READ_AHEAD_THREADS,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            Thread.ofPlatform().name("read-ahead-", 0).daemon().factory());
+
+    public static StorageEngine shared() {
+        return SHARED;
     }
 
-    // 파일 헤더 쓰기
-    public void writeFileHeader(RandomAccessFile raf) throws IOException {
-        raf.seek(0);
-        raf.writeInt(recordCount);
-        raf.writeInt(fieldNames.size());
+    public TableLatch latchFor(String filename) {
+        String key = Paths.get(filename).toAbsolutePath().normalize().toString();
+        return latches.computeIfAbsent(key, TableLatch::new);
+    }
 
-        // 필드 이름 기록 (고정 길이, 널 바이트 패딩)
-        for (String name : fieldNames) {
-            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
-            byte[] padded = new byte[Constants.FIXED_FIELD_NAME_SIZE];
-            System.arraycopy(nameBytes, 0, padded, 0, Math.min(nameBytes.length, Constants.FIXED_FIELD_NAME_SIZE));
-            raf.write(padded);
+    // 기존 테이블 파일의 래치 (이 프로세스에서 처음 여는 테이블이면 파일 잠금부터 잡음)
+    public TableLatch open(String filename) throws IOException {
+        TableLatch latch = latchFor(filename);
+        if (!Files.exists(Paths.get(latch.path))) {
+            throw new java.nio.file.NoSuchFileException(filename);
         }
+        latch.lockFile();
+        return latch;
+    }
 
-        // 필드 크기 기록
-        for (int size : fieldSizes) {
-            raf.writeInt(size);
-        }
+    // 풀에서 빌린 읽기 핸들로 스냅샷 스캔 시작 (스캔을 닫으면 핸들도 반납)
+    public TableScan openScan(String filename) throws IOException {
+        return openScans(filename)[0];
+    }
 
-        // 첫 블록 offset
-        raf.writeInt(firstBlockOffset);
+    // 여러 스캔을 함께 열 때는 핸들 자리를 한 번에 확보
+    public TableScan[] openScans(String... filenames) throws IOException {
+        handles.reserve(filenames.length);
+        TableScan[] scans = new TableScan[filenames.length];
+        int borrowed = 0;   // 자리를 쓴 핸들 수 (핸들을 반납하면 그 자리도 함께 반납됨)
+        try {
+            for (int i = 0; i < filenames.length; i++) {
+                TableLatch latch = open(filenames[i]);
+                RandomAccessFile raf = handles.borrow(latch.path, "r");
+                borrowed++;
+                try {
+                    scans[i] = new TableScan(raf, latch, handles, readAheadPool);
+                } catch (IOException | RuntimeException e) {
+                    handles.release(latch.path, "r", raf);
+                    throw e;
+                }
+            }
+            return scans;
+        } catch (IOException | RuntimeException e) {
+            for (TableScan scan : scans) {
+                if (scan != null) scan.close();
+            }
+            handles.cancel(filenames.length - borrowed);
+            throw e;
+        }
+    }
 
-        // padding
-        long writtenSize = 4 + 4 +
-                ((long) Constants.FIXED_FIELD_NAME_SIZE * fieldNames.size()) +
-                (4L * fieldSizes.size()) + 4;
-        long padding = Constants.BLOCK_SIZE - writtenSize;
+    public TableStatistics statisticsFor(String tableName) throws IOException {
+        return latchFor(tableName + Constants.FILE_EXTENSION).statistics(tableName);
+    }
 
-        for (int i = 0; i < padding; i++) {
-            raf.writeByte(0x00);
-        }
+    // 스키마 변경 시 캐시된 스키마/통계와 쉬고 있는 핸들을 폐기
+    public void invalidate(String filename) {
+        TableLatch latch = latchFor(filename);
+        latch.invalidateCatalog();
+        handles.closeIdle(latch.path);
     }
 
-    // 파일 헤더 읽기
-    public void readFileHeader(RandomAccessFile raf) throws IOException {
-        raf.seek(0);
-        this.recordCount = raf.readInt();
-        int fieldCount = raf.readInt();
+    private StorageEngine() {}
+}
 
-        fieldNames = new ArrayList<>();
-        fieldSizes = new ArrayList<>();
+// 열린 RandomAccessFile 재사용 풀: 빌린 핸들은 반납 전까지 한 스레드만 사용 (seek 위치 공유 방지)
+// 동시에 빌려 줄 수 있는 핸들은 maxBorrowed개, 쉬고 있는 핸들은 maxIdle개로 제한하므로
+// 열린 파일 디스크립터는 최대 maxBorrowed + maxIdle개 (테이블마다 잠금 파일 하나는 별도). 한도에 닿으면 반납될 때까지 대기
+// 핸들 두 개가 필요한 작업(조인)은 reserve(2)로 한 번에 확보해야 함 (하나를 쥔 채 기다리면 교착 가능)
+class HandlePool {
+    private final int maxIdle;
+    private final Semaphore borrowPermits;
+    private final ConcurrentHashMap<String, ConcurrentLinkedDeque<RandomAccessFile>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public HandlePool(int maxIdle, int maxBorrowed) {
+        this.maxIdle = maxIdle;
+        this.borrowPermits = new Semaphore(maxBorrowed, true);
+    }
 
-        // 필드 이름 읽기
-        for (int i = 0; i < fieldCount; i++) {
-            byte[] buffer = new byte[Constants.FIXED_FIELD_NAME_SIZE];
-            raf.readFully(buffer);
-            String name = new String(buffer, StandardCharsets.UTF_8).trim();
-            fieldNames.add(name);
+    public RandomAccessFile acquire(String path, String mode) throws IOException {
+        reserve(1);
+        try {
+            return borrow(path, mode);
+        } catch (IOException | RuntimeException e) {
+            borrowPermits.release();
+            throw e;
         }
+    }
 
-        // 필드 크기 읽기
-        for (int i = 0; i < fieldCount; i++) {
-            fieldSizes.add(raf.readInt());
+    // 핸들 count개를 빌릴 자리를 한 번에 확보 (이후 borrow를 count번 호출)
+    public void reserve(int count) throws IOException {
+        try {
+            borrowPermits.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("파일 핸들 대기 중 인터럽트되었습니다.");
         }
+    }
 
-        this.firstBlockOffset = raf.readInt();
-        // 나머지 padding은 무시
+    // reserve로 확보한 자리 하나를 써서 핸들을 빌림 (실패하면 호출자가 cancel로 자리를 돌려줌)
+    public RandomAccessFile borrow(String path, String mode) throws IOException {
+        ConcurrentLinkedDeque<RandomAccessFile> deque = idle.get(mode + ":" + path);
+        RandomAccessFile raf = (deque != null) ? deque.pollFirst() : null;
+        if (raf != null) {
+            idleCount.decrementAndGet();
+            return raf;
+        }
+        return new RandomAccessFile(path, mode);
     }
 
-    public void addRecord(RandomAccessFile raf, Record record) throws IOException {
-        int blockOffset = this.firstBlockOffset;
-        Block block = null;
+    public void cancel(int count) {
+        borrowPermits.release(count);
+    }
 
-        // 파일 크기가 헤더밖에 없으면, 첫 블록이 아직 없는 상태
-        if (raf.length() <= blockOffset) {
-            block = new Block();
-            block.addRecord(record, fieldSizes);
+    public void release(String path, String mode, RandomAccessFile raf) {
+        try {
+            if (idleCount.incrementAndGet() > maxIdle) {
+                idleCount.decrementAndGet();
+                closeQuietly(raf);
+                return;
+            }
+            idle.computeIfAbsent(mode + ":" + path, k -> new ConcurrentLinkedDeque<>()).offerFirst(raf);
+        } finally {
+            borrowPermits.release();
+        }
+    }
 
-            // 블록 파일에 기록
-            raf.seek(blockOffset);
-            block.writeBlock(raf, blockOffset, fieldSizes);
+    public void closeIdle(String path) {
+        for (String mode : List.of("r", "rw")) {
+            ConcurrentLinkedDeque<RandomAccessFile> deque = idle.get(mode + ":" + path);
+            if (deque == null) continue;
 
-            this.recordCount++;
-            raf.seek(0);
-            this.writeFileHeader(raf);
-            return;
+            RandomAccessFile raf;
+            while ((raf = deque.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                closeQuietly(raf);
+            }
         }
+    }
 
-        // 마지막 블록 탐색
-        while (blockOffset != -1) {
-            block = Block.readBlock(raf, blockOffset, fieldSizes);
-            if (block.nextBlockOffset == -1) break;
-            blockOffset = block.nextBlockOffset;
+    private static void closeQuietly(RandomAccessFile raf) {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            System.err.println("파일 핸들 닫기 실패: " + e.getMessage());
         }
+    }
+}
 
-        int estimatedSize = record.getSize(fieldSizes);
-        int lastOffset = block.firstAvailableOffset(fieldSizes);
-        int remaining = Constants.BLOCK_SIZE - lastOffset;
-
-        if (remaining < estimatedSize) {
-            // 새 블록 생성
-            Block newBlock = new Block();
-            newBlock.addRecord(record, fieldSizes);
+// 테이블(파일) 단위 동기화: 단일 writer 잠금, 헤더/블록별 StampedLock
+// reader는 낙관적 읽기 후 검증만 하므로 writer를 막지도, writer에게 막히지도 않음
+class TableLatch {
+    final String path;
+    final ReentrantLock writerLock = new ReentrantLock();
+    private final StampedLock headerLatch = new StampedLock();
+    private final StampedLock[] pageLatches;
+
+    // 카탈로그: 생성 후 바뀌지 않는 스키마(필드 이름/크기)와 불러온 통계 (null이면 아직 읽지 않음)
+    // 레코드 수와 트랜잭션 정보는 캐시하지 않고 헤더를 읽을 때마다 파일에서 가져옴
+    private volatile File cachedSchema;
+    private volatile Optional<TableStatistics> cachedStatistics;
+
+    // 프로세스 간 잠금 (한 번 잡으면 프로세스가 끝날 때까지 유지)
+    private volatile FileLock processLock;
+
+    public TableLatch(String path) {
+        this.path = path;
+        this.pageLatches = new StampedLock[Constants.PAGE_LATCH_STRIPES];
+        for (int i = 0; i < pageLatches.length; i++) {
+            pageLatches[i] = new StampedLock();
+        }
+    }
 
-            int newOffset = blockOffset + Constants.BLOCK_SIZE;
-            block.nextBlockOffset = newOffset;
+    // 다른 프로세스가 같은 테이블을 열고 있으면 실패
+    // .bin 파일을 직접 잠그면 같은 파일의 다른 핸들을 닫을 때 (POSIX 잠금 특성상) 잠금이 함께 풀리므로 옆의 .lock 파일을 잠금
+    public void lockFile() throws IOException {
+        if (processLock != null) return;
+        synchronized (this) {
+            if (processLock != null) return;
+
+            FileChannel channel = FileChannel.open(Paths.get(path + Constants.LOCK_EXTENSION),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (lock == null) {
+                channel.close();
+                throw new IOException("다른 프로세스가 사용 중인 테이블입니다: " + path);
+            }
+            processLock = lock;
+        }
+    }
 
-            // 기존 블록 갱신
-            raf.seek(blockOffset);
-            block.writeBlock(raf, blockOffset, fieldSizes);
+    private StampedLock pageLatch(int blockOffset) {
+        return pageLatches[(blockOffset / Constants.BLOCK_SIZE) % pageLatches.length];
+    }
 
-            // 새 블록 기록
-            raf.seek(newOffset);
-            newBlock.writeBlock(raf, newOffset, fieldSizes);
-        } else {
-            // 현재 블록에 추가
-            block.addRecord(record, fieldSizes);
-            raf.seek(blockOffset);
-            block.writeBlock(raf, blockOffset, fieldSizes);
+    // 헤더 블록을 파일에서 읽음 (스캔 시작과 삽입 시작마다 호출되므로 그 사이 커밋된 내용을 놓치지 않음)
+    // 필드 이름/크기는 캐시된 스키마가 있으면 다시 디코딩하지 않고 공유
+    public void readHeader(RandomAccessFile raf, File header) throws IOException {
+        byte[] image;
+        long stamp = headerLatch.readLock();
+        try {
+            image = File.readHeaderImage(raf);
+        } finally {
+            headerLatch.unlockRead(stamp);
         }
 
-        // 레코드 수 증가 및 헤더 갱신
-        this.recordCount++;
-        raf.seek(0);
-        this.writeFileHeader(raf);
+        File schema = cachedSchema;
+        header.decodeFileHeader(image, schema);
+        if (schema == null) {
+            cachedSchema = File.schemaOf(header);
+        }
     }
 
-    public String getFileName() {
-        return fieldNames.getFirst().toLowerCase() + Constants.FILE_EXTENSION;
-    }
+    public void writeHeader(RandomAccessFile raf, File header) throws IOException {
+        long stamp = headerLatch.writeLock();
+        try {
+            header.writeFileHeader(raf);
+
+            File schema = cachedSchema;
+            if (schema == null || schema.fieldNames != header.fieldNames || schema.fieldSizes != header.fieldSizes) {
+                cachedSchema = File.schemaOf(header);
+            }
+        } finally {
+            headerLatch.unlockWrite(stamp);
+        }
+    }
+
+    public TableStatistics statistics(String tableName) throws IOException {
+        Optional<TableStatistics> cached = cachedStatistics;
+        if (cached == null) {
+            cached = Optional.ofNullable(TableStatistics.load(tableName));
+            cachedStatistics = cached;
+        }
+        return cached.orElse(null);
+    }
+
+    public void cacheStatistics(TableStatistics stats) {
+        cachedStatistics = Optional.ofNullable(stats);
+    }
+
+    public void invalidateCatalog() {
+        long stamp = headerLatch.writeLock();
+        try {
+            cachedSchema = null;
+            cachedStatistics = null;
+        } finally {
+            headerLatch.unlockWrite(stamp);
+        }
+    }
+
+    // 먼저 잠금 없이 읽고, 그 사이 같은 블록에 쓰기가 있었거나 쓰기 중이면 읽기 잠금을 잡고 한 번 더 읽음
+    // (writer가 잠금을 오래 잡고 있어도 reader가 회전하며 CPU/캐리어 스레드를 점유하지 않도록)
+    public Block readBlock(RandomAccessFile raf, int position, List<Integer> fieldSizes) throws IOException {
+        StampedLock latch = pageLatch(position);
+        long stamp = latch.tryOptimisticRead();
+        if (stamp != 0) {
+            byte[] image = Block.readBlockImage(raf, position);
+            if (latch.validate(stamp)) {
+                return Block.decodeBlock(image, fieldSizes);
+            }
+        }
+
+        Metrics.LATCH_RETRIES.increment();
+        stamp = latch.readLock();
+        try {
+            return Block.decodeBlock(Block.readBlockImage(raf, position), fieldSizes);
+        } finally {
+            latch.unlockRead(stamp);
+        }
+    }
+
+    // 다른 스레드가 미리 읽을 블록: 읽기 전에 stamp를 받고, 사용 시점에 validate로 그 사이 쓰기가 없었는지 확인
+    long optimisticStamp(long position) {
+        return pageLatch((int) position).tryOptimisticRead();
+    }
+
+    boolean validate(int position, long stamp) {
+        return stamp != 0 && pageLatch(position).validate(stamp);
+    }
+
+    public void writeBlock(RandomAccessFile raf, Block block, int position, List<Integer> fieldSizes) throws IOException {
+        StampedLock latch = pageLatch(position);
+        long stamp = latch.writeLock();
+        try {
+            block.writeBlock(raf, position, fieldSizes);
+        } finally {
+            latch.unlockWrite(stamp);
+        }
+    }
+}
+
+// 스냅샷 스캔: 시작 시점에 커밋된 트랜잭션이 만든 레코드만 반환
+class TableScan implements AutoCloseable {
+    final File header;
+    final int snapshotTxnId;
+
+    // EXPLAIN ANALYZE용 스캔 기록
+    long blocksRead;
+    long recordsRead;
+    long recordsVisible;
+    long readNanos;
+
+    private final RandomAccessFile raf;
+    private final TableLatch latch;
+    private final HandlePool handles;
+    final ReadAhead readAhead;
+    private int nextBlockOffset;
+
+    public TableScan(RandomAccessFile raf, TableLatch latch, HandlePool handles, ThreadPoolExecutor readAheadPool) throws IOException {
+        this.raf = raf;
+        this.latch = latch;
+        this.handles = handles;
+        this.header = new File();
+        latch.readHeader(raf, header);
+        this.snapshotTxnId = header.committedTxnId;
+        this.nextBlockOffset = (header.recordCount > 0) ? header.firstBlockOffset : -1;
+        this.readAhead = new ReadAhead(raf.getChannel(), latch, readAheadPool);
+    }
+
+    // 보이는 레코드가 있는 다음 블록 반환, 체인 끝에 도달하면 null
+    public Block nextBlock() throws IOException {
+        while (nextBlockOffset != -1) {
+            long start = System.nanoTime();
+            byte[] image = readAhead.take(nextBlockOffset);
+            Block block = (image != null)
+                    ? Block.decodeBlock(image, header.fieldSizes)
+                    : latch.readBlock(raf, nextBlockOffset, header.fieldSizes);
+            readNanos += System.nanoTime() - start;
+            blocksRead++;
+            recordsRead += block.records.size();
+
+            readAhead.advance(nextBlockOffset, block.nextBlockOffset);
+            nextBlockOffset = block.nextBlockOffset;
+
+            block.records.removeIf(r -> !r.isVisibleTo(snapshotTxnId));
+            block.recordCount = block.records.size();
+            recordsVisible += block.recordCount;
+            if (!block.records.isEmpty()) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        readAhead.discard();
+        handles.release(latch.path, "r", raf);
+    }
+}
+
+// 순차 블록 체인 선읽기: 다음 블록이 바로 뒤 위치(offset + BLOCK_SIZE)에 이어지는 패턴이 감지되면
+// 뒤따르는 블록들을 I/O 스레드에서 한 번의 위치 지정 읽기로 미리 가져와 디코딩/조인과 겹치게 함
+// 창(window)은 읽어 둔 구간을 제때 소비할 때마다 두 배로 키우고(최대 READ_AHEAD_MAX_BLOCKS), 패턴이 깨지면 버리고 다시 감지
+// 풀이 밀려 읽기가 늦으면 창을 절반씩 줄이다 0이 되면 선읽기를 멈추고, 풀에 밀린 요청이 없어졌을 때만 다시 시작
+// 미리 읽은 블록은 사용하는 시점에 페이지 래치 stamp를 검증해 그 사이 쓰기가 있었으면 버림 (호출자가 직접 다시 읽음)
+class ReadAhead {
+    private static final int DETECT_RUN = 2;   // 이만큼 연속으로 순차 연결이면 선읽기 시작
+
+    private final FileChannel channel;
+    private final TableLatch latch;
+    private final ThreadPoolExecutor pool;
+    private final long limit;       // 스캔 시작 시점의 파일 길이
+    private final ArrayDeque<Extent> pending = new ArrayDeque<>();
+    private int sequentialRun;
+    private int window;
+    private boolean late;           // 마지막 요청 이후 아직 끝나지 않은 선읽기를 만난 적이 있는지
+    private long nextIssueOffset;
+
+    long issued;
+    long hits;
+    long wasted;
+
+    // 연속된 블록 묶음 하나의 선읽기
+    private static class Extent {
+        final long start;
+        final int blocks;
+        final long[] stamps;
+        final Future<byte[]> data;
+        int consumed;
+
+        Extent(long start, int blocks, long[] stamps, Future<byte[]> data) {
+            this.start = start;
+            this.blocks = blocks;
+            this.stamps = stamps;
+            this.data = data;
+        }
+
+        long nextOffset() {
+            return start + (long) consumed * Constants.BLOCK_SIZE;
+        }
+    }
+
+    public ReadAhead(FileChannel channel, TableLatch latch, ThreadPoolExecutor pool) throws IOException {
+        this.channel = channel;
+        this.latch = latch;
+        this.pool = pool;
+        this.limit = channel.size();
+    }
+
+    // 선읽기로 가져온 블록 이미지 (없거나, 아직 읽는 중이거나, 쓸 수 없으면 null → 호출자가 직접 읽음)
+    // 선읽기 풀은 모든 스캔이 함께 쓰므로 다른 스캔의 읽기 뒤에 줄 서 있을 수 있어 결과를 기다리지 않음
+    public byte[] take(int offset) {
+        Extent head = pending.peekFirst();
+        if (head == null) return null;
+        if (head.nextOffset() != offset) {
+            discard();
+            return null;
+        }
+
+        int index = head.consumed++;
+        if (head.consumed == head.blocks) {
+            pending.pollFirst();
+        }
+
+        Future.State state = head.data.state();
+        if (state != Future.State.SUCCESS) {
+            // 구간을 다 지나쳤으면 아직 시작하지 않은 읽기는 취소
+            if (head.consumed == head.blocks) {
+                head.data.cancel(false);
+            }
+            if (state == Future.State.RUNNING) {
+                late = true;
+                Metrics.READ_AHEAD_LATE.increment();
+            }
+            wasted++;
+            Metrics.READ_AHEAD_WASTED.increment();
+            return null;
+        }
+
+        byte[] data = head.data.resultNow();
+        int from = index * Constants.BLOCK_SIZE;
+        if (data.length < from + Constants.BLOCK_SIZE || !latch.validate(offset, head.stamps[index])) {
+            wasted++;
+            Metrics.READ_AHEAD_WASTED.increment();
+            return null;
+        }
+        hits++;
+        Metrics.READ_AHEAD_HITS.increment();
+        return Arrays.copyOfRange(data, from, from + Constants.BLOCK_SIZE);
+    }
+
+    // 방금 읽은 블록과 다음 블록의 위치로 순차 여부를 판단하고 필요하면 다음 구간 선읽기
+    public void advance(int offset, int nextOffset) {
+        if (Constants.READ_AHEAD_MAX_BLOCKS <= 0) return;
+
+        if (nextOffset == -1 || nextOffset != offset + Constants.BLOCK_SIZE) {
+            discard();
+            sequentialRun = 0;
+            window = 0;
+            return;
+        }
+        if (++sequentialRun < DETECT_RUN) return;
+
+        if (pending.isEmpty()) {
+            nextIssueOffset = nextOffset;
+        }
+        // 마지막 구간까지 소비하기 시작했으면 다음 구간을 미리 요청
+        if (pending.size() <= 1 && nextIssueOffset < limit) {
+            if (late) {
+                window /= 2;
+                late = false;
+            } else if (window > 0) {
+                window = Math.min(window * 2, Constants.READ_AHEAD_MAX_BLOCKS);
+            } else if (pool.getQueue().isEmpty()) {
+                // 처음 시작하거나 멈췄던 선읽기: 다른 스캔의 요청이 밀려 있으면 직접 읽기를 계속함
+                window = Math.min(Constants.READ_AHEAD_INITIAL_BLOCKS, Constants.READ_AHEAD_MAX_BLOCKS);
+            }
+            if (window > 0) {
+                issue();
+            }
+        }
+    }
+
+    private void issue() {
+        long start = nextIssueOffset;
+        int blocks = (int) Math.min(window, (limit - start + Constants.BLOCK_SIZE - 1) / Constants.BLOCK_SIZE);
+
+        // 읽기 전에 블록별 stamp를 받아 둠 (쓰기 중인 블록은 0이라 사용 시점에 검증 실패)
+        long[] stamps = new long[blocks];
+        for (int i = 0; i < blocks; i++) {
+            stamps[i] = latch.optimisticStamp(start + (long) i * Constants.BLOCK_SIZE);
+        }
+
+        int length = blocks * Constants.BLOCK_SIZE;
+        Future<byte[]> data = pool.submit(() -> Block.readBlockImages(channel, start, length));
+        pending.addLast(new Extent(start, blocks, stamps, data));
+        nextIssueOffset = start + length;
+
+        issued += blocks;
+        Metrics.READ_AHEAD_ISSUED.add(blocks);
+    }
+
+    // 아직 소비하지 않은 선읽기를 모두 버림 (시작 전인 읽기는 취소)
+    public void discard() {
+        Extent extent;
+        while ((extent = pending.pollFirst()) != null) {
+            extent.data.cancel(false);
+            int unused = extent.blocks - extent.consumed;
+            wasted += unused;
+            Metrics.READ_AHEAD_WASTED.add(unused);
+        }
+    }
+}
+
+// 중단된 트랜잭션이 남긴 레코드 버전을 블록에서 제거
+// 삭제 경로가 아직 없으므로 회수 대상은 커밋되지 않은 삽입뿐이고, 이는 어떤 스냅샷에도 보이지 않으므로
+// 진행 중인 스캔을 추적할 필요가 없음
+// 호출자는 latch.writerLock을 보유하고 있어야 함
+class VersionGarbageCollector {
+    // header는 파일에서 다시 읽어 갱신하고, 레코드 수는 남은 레코드를 세어 다시 기록
+    public static int collect(RandomAccessFile raf, File header, TableLatch latch) throws IOException {
+        // 호출자가 들고 있던 헤더가 아니라 파일에 기록된 커밋 id를 기준으로 회수 대상을 판단
+        latch.readHeader(raf, header);
+
+        int removed = 0;
+        int remaining = 0;
+
+        int blockOffset = (raf.length() > header.firstBlockOffset) ? header.firstBlockOffset : -1;
+        while (blockOffset != -1) {
+            Block block = Block.readBlock(raf, blockOffset, header.fieldSizes);
+
+            Block compacted = new Block();
+            compacted.nextBlockOffset = block.nextBlockOffset;
+            for (Record record : block.records) {
+                if (!record.isObsolete(header.committedTxnId)) {
+                    compacted.addRecord(record, header.fieldSizes);
+                }
+            }
+
+            // 블록은 체인에서 빼지 않고 내용만 교체 (진행 중인 스캔의 블록 위치가 그대로 유효)
+            if (compacted.recordCount != block.recordCount) {
+                removed += block.recordCount - compacted.recordCount;
+                latch.writeBlock(raf, compacted, blockOffset, header.fieldSizes);
+            }
+            remaining += compacted.recordCount;
+            blockOffset = block.nextBlockOffset;
+        }
+
+        header.recordCount = remaining;
+        header.activeTxnId = 0;
+        latch.writeHeader(raf, header);
+        return removed;
+    }
+
+    private VersionGarbageCollector() {}
+}
+
+class TableStatistics {
+    int snapshotTxnId;     // 통계를 수집한 스냅샷
+    long rowCount;
+    List<ColumnStatistics> columns;
+
+    public TableStatistics(int snapshotTxnId, long rowCount, List<ColumnStatistics> columns) {
+        this.snapshotTxnId = snapshotTxnId;
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    // 통계 수집 이후 커밋된 트랜잭션이 있다면 더 이상 신뢰하지 않음
+    public boolean isFreshFor(File header) {
+        return snapshotTxnId == header.committedTxnId && columns.size() == header.fieldNames.size();
+    }
+
+    // 등치 조인 결과 수 추정: 공통 MCV는 빈도끼리 곱하고, 나머지는 큰 쪽 distinct 수로 나눔
+    public static long estimateJoinCardinality(TableStatistics statsA, int indexA, TableStatistics statsB, int indexB) {
+        ColumnStatistics colA = statsA.columns.get(indexA);
+        ColumnStatistics colB = statsB.columns.get(indexB);
+
+        double selectivity = 0.0;
+        double matchedA = 0.0, matchedB = 0.0;
+        int matchedCount = 0;
+        for (Map.Entry<String, Double> mcv : colA.mostCommonValues.entrySet()) {
+            Double freqB = colB.mostCommonValues.get(mcv.getKey());
+            if (freqB != null) {
+                selectivity += mcv.getValue() * freqB;
+                matchedA += mcv.getValue();
+                matchedB += freqB;
+                matchedCount++;
+            }
+        }
+
+        double restA = Math.max(0.0, 1.0 - colA.nullFraction - matchedA);
+        double restB = Math.max(0.0, 1.0 - colB.nullFraction - matchedB);
+        double distinctRest = Math.max(1.0, Math.max(colA.distinctCount, colB.distinctCount) - matchedCount);
+        selectivity += restA * restB / distinctRest;
+
+        return Math.round(statsA.rowCount * statsB.rowCount * selectivity);
+    }
+
+    public void save(String tableName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(tableName + Constants.STATS_EXTENSION))))) {
+            out.writeInt(snapshotTxnId);
+            out.writeLong(rowCount);
+            out.writeInt(columns.size());
+            for (ColumnStatistics column : columns) {
+                column.write(out);
+            }
+        }
+    }
+
+    // 통계 파일이 없으면 null 반환
+    public static TableStatistics load(String tableName) throws IOException {
+        java.nio.file.Path path = Paths.get(tableName + Constants.STATS_EXTENSION);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int snapshotTxnId = in.readInt();
+            long rowCount = in.readLong();
+            int columnCount = in.readInt();
+            List<ColumnStatistics> columns = new ArrayList<>();
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(ColumnStatistics.read(in));
+            }
+            return new TableStatistics(snapshotTxnId, rowCount, columns);
+        }
+    }
+
+    void printStatistics() {
+        System.out.println("레코드 개수: " + rowCount);
+        for (ColumnStatistics column : columns) {
+            System.out.printf("필드 %s: distinct %d, null 비율 %.3f, 정렬 %s, 범위 [%s, %s]%n",
+                    column.fieldName, column.distinctCount, column.nullFraction,
+                    column.sorted ? "O" : "X", column.minValue, column.maxValue);
+            System.out.println("  MCV: " + column.mostCommonValues);
+            System.out.println("  히스토그램 경계: " + column.histogramBounds);
+        }
+    }
+}
+
+class ColumnStatistics {
+    String fieldName;
+    long distinctCount;
+    double nullFraction;
+    boolean sorted;                          // 블록 체인 순서대로 읽었을 때 오름차순인지 여부
+    String minValue;
+    String maxValue;
+    Map<String, Double> mostCommonValues;    // 값 -> 전체 레코드 대비 빈도
+    List<String> histogramBounds;            // MCV를 제외한 값들의 equi-depth 경계
+
+    public ColumnStatistics(String fieldName) {
+        this.fieldName = fieldName;
+        this.mostCommonValues = new LinkedHashMap<>();
+        this.histogramBounds = new ArrayList<>();
+    }
+
+    // 범위 [minKey, maxKey]에 값이 하나도 없음이 확실한지 (최솟값/최댓값은 표본이 아닌 전체 레코드 기준)
+    public boolean excludesRange(String minKey, String maxKey) {
+        return minValue == null || minKey.compareTo(maxKey) > 0
+                || maxKey.compareTo(minValue) < 0 || minKey.compareTo(maxValue) > 0;
+    }
+
+    // 범위 [minKey, maxKey] 선택도 추정 (MCV와 표본 히스토그램 기준이므로 실제로 값이 있어도 0일 수 있음)
+    public double estimateRangeSelectivity(String minKey, String maxKey) {
+        if (excludesRange(minKey, maxKey)) {
+            return 0.0;
+        }
+
+        double selectivity = 0.0;
+        double mcvTotal = 0.0;
+        for (Map.Entry<String, Double> mcv : mostCommonValues.entrySet()) {
+            mcvTotal += mcv.getValue();
+            if (mcv.getKey().compareTo(minKey) >= 0 && mcv.getKey().compareTo(maxKey) <= 0) {
+                selectivity += mcv.getValue();
+            }
+        }
+
+        int bucketCount = histogramBounds.size() - 1;
+        if (bucketCount > 0) {
+            // 완전히 포함된 버킷은 1, 걸쳐 있는 버킷은 절반으로 계산
+            double covered = 0.0;
+            for (int i = 0; i < bucketCount; i++) {
+                String low = histogramBounds.get(i);
+                String high = histogramBounds.get(i + 1);
+                if (high.compareTo(minKey) < 0 || low.compareTo(maxKey) > 0) continue;
+                boolean inside = low.compareTo(minKey) >= 0 && high.compareTo(maxKey) <= 0;
+                covered += inside ? 1.0 : 0.5;
+            }
+            selectivity += Math.max(0.0, 1.0 - nullFraction - mcvTotal) * covered / bucketCount;
+        }
+
+        return Math.min(1.0, selectivity);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(fieldName);
+        out.writeLong(distinctCount);
+        out.writeDouble(nullFraction);
+        out.writeBoolean(sorted);
+        writeNullableString(out, minValue);
+        writeNullableString(out, maxValue);
+
+        out.writeInt(mostCommonValues.size());
+        for (Map.Entry<String, Double> mcv : mostCommonValues.entrySet()) {
+            out.writeUTF(mcv.getKey());
+            out.writeDouble(mcv.getValue());
+        }
+
+        out.writeInt(histogramBounds.size());
+        for (String bound : histogramBounds) {
+            out.writeUTF(bound);
+        }
+    }
+
+    static ColumnStatistics read(DataInputStream in) throws IOException {
+        ColumnStatistics column = new ColumnStatistics(in.readUTF());
+        column.distinctCount = in.readLong();
+        column.nullFraction = in.readDouble();
+        column.sorted = in.readBoolean();
+        column.minValue = readNullableString(in);
+        column.maxValue = readNullableString(in);
+
+        int mcvCount = in.readInt();
+        for (int i = 0; i < mcvCount; i++) {
+            column.mostCommonValues.put(in.readUTF(), in.readDouble());
+        }
+
+        int boundCount = in.readInt();
+        for (int i = 0; i < boundCount; i++) {
+            column.histogramBounds.add(in.readUTF());
+        }
+        return column;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
+
+// 한 컬럼의 값을 순서대로 받아 통계를 누적 (컬럼 간에는 병렬로 동작)
+class ColumnAnalyzer {
+    private final String fieldName;
+    private final HyperLogLog distinct = new HyperLogLog(Constants.HLL_PRECISION);
+    private final List<String> sample = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(Constants.ANALYZE_SAMPLE_SEED);
+    private long rowCount;
+    private long nonNullCount;
+    private boolean sorted = true;
+    private String minValue;
+    private String maxValue;
+    private String lastValue;
+
+    public ColumnAnalyzer(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    // 한 배치의 레코드를 컬럼별로 나누어 동시에 누적
+    public static void addBatch(List<ColumnAnalyzer> analyzers, List<Record> batch) {
+        if (batch.isEmpty()) return;
+        java.util.stream.IntStream.range(0, analyzers.size()).parallel().forEach(i -> {
+            ColumnAnalyzer analyzer = analyzers.get(i);
+            for (Record record : batch) {
+                analyzer.add(record.fields.get(i));
+            }
+        });
+    }
+
+    void add(String value) {
+        rowCount++;
+        if (value == null) return;
+
+        distinct.add(value);
+        if (lastValue != null && value.compareTo(lastValue) < 0) sorted = false;
+        if (minValue == null || value.compareTo(minValue) < 0) minValue = value;
+        if (maxValue == null || value.compareTo(maxValue) > 0) maxValue = value;
+        lastValue = value;
+
+        // reservoir sampling
+        if (sample.size() < Constants.ANALYZE_SAMPLE_SIZE) {
+            sample.add(value);
+        } else {
+            long slot = random.nextLong(nonNullCount + 1);
+            if (slot < Constants.ANALYZE_SAMPLE_SIZE) sample.set((int) slot, value);
+        }
+        nonNullCount++;
+    }
+
+    public ColumnStatistics finish() {
+        ColumnStatistics stats = new ColumnStatistics(fieldName);
+        stats.distinctCount = Math.min(distinct.estimate(), nonNullCount);
+        stats.nullFraction = rowCount == 0 ? 0.0 : (double) (rowCount - nonNullCount) / rowCount;
+        stats.sorted = sorted;
+        stats.minValue = minValue;
+        stats.maxValue = maxValue;
+        if (sample.isEmpty()) return stats;
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (String value : sample) {
+            counts.merge(value, 1, Integer::sum);
+        }
+
+        // 표본에서 두 번 이상, 평균보다 자주 나온 값만 MCV로 채택
+        double nonNullFraction = 1.0 - stats.nullFraction;
+        double averageCount = (double) sample.size() / counts.size();
+        counts.entrySet().stream()
+                .filter(e -> e.getValue() >= 2 && e.getValue() > averageCount)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(Constants.MCV_COUNT)
+                .forEach(e -> stats.mostCommonValues.put(e.getKey(), nonNullFraction * e.getValue() / sample.size()));
+
+        // MCV를 제외한 나머지 값으로 equi-depth 히스토그램 경계 계산
+        List<String> rest = new ArrayList<>();
+        for (String value : sample) {
+            if (!stats.mostCommonValues.containsKey(value)) rest.add(value);
+        }
+        if (rest.size() >= 2) {
+            Collections.sort(rest);
+            int bucketCount = Math.min(Constants.HISTOGRAM_BUCKETS, rest.size() - 1);
+            for (int i = 0; i <= bucketCount; i++) {
+                stats.histogramBounds.add(rest.get((int) ((long) i * (rest.size() - 1) / bucketCount)));
+            }
+        }
+        return stats;
+    }
+}
+
+// distinct 개수 추정을 위한 HyperLogLog
+class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        long hash = hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // 하위 비트의 선행 0 개수 + 1 (레지스터 범위를 넘지 않도록 보초 비트 추가)
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0.0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) zeroRegisters++;
+        }
+
+        double alpha = 0.7213 / (1.0 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+
+        // 작은 범위 보정 (linear counting)
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            estimate = m * Math.log((double) m / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    // FNV-1a 후 MurmurHash3 finalizer로 비트를 고르게 섞음
+    private static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
+
+class File {
+    int recordCount;
+    List<String> fieldNames;
+    List<Integer> fieldSizes;
+    int firstBlockOffset;
+    int committedTxnId;    // 마지막으로 커밋된 트랜잭션 id (reader 스냅샷 기준)
+    int activeTxnId;       // 진행 중인 쓰기 트랜잭션 id (없으면 0)
+
+    public File() {
+        this.recordCount = 0;
+        this.fieldNames = new ArrayList<>();
+        this.fieldSizes = new ArrayList<>();
+        this.firstBlockOffset = -1;
+        this.committedTxnId = 0;
+        this.activeTxnId = 0;
+    }
+
+    // 필드 이름/크기만 담은 사본 (필드 목록은 생성 후 바뀌지 않으므로 공유)
+    public static File schemaOf(File header) {
+        File schema = new File();
+        schema.fieldNames = header.fieldNames;
+        schema.fieldSizes = header.fieldSizes;
+        return schema;
+    }
+
+    // 파일 헤더 쓰기 (헤더 블록 전체를 한 번에 기록)
+    public void writeFileHeader(RandomAccessFile raf) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.BLOCK_SIZE);
+        buffer.putInt(Constants.FILE_MAGIC);
+        buffer.putInt(Constants.FILE_FORMAT_VERSION);
+        buffer.putInt(recordCount);
+        buffer.putInt(fieldNames.size());
+
+        // 필드 이름 기록 (고정 길이, 널 바이트 패딩)
+        for (String name : fieldNames) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] padded = new byte[Constants.FIXED_FIELD_NAME_SIZE];
+            System.arraycopy(nameBytes, 0, padded, 0, Math.min(nameBytes.length, Constants.FIXED_FIELD_NAME_SIZE));
+            buffer.put(padded);
+        }
+
+        // 필드 크기 기록
+        for (int size : fieldSizes) {
+            buffer.putInt(size);
+        }
+
+        // 첫 블록 offset
+        buffer.putInt(firstBlockOffset);
+
+        // 트랜잭션 정보
+        buffer.putInt(committedTxnId);
+        buffer.putInt(activeTxnId);
+
+        // 나머지는 0으로 padding된 상태
+        long start = System.nanoTime();
+        raf.seek(0);
+        raf.write(buffer.array());
+        Metrics.HEADER_WRITE.recordSince(start);
+        Metrics.BYTES_WRITTEN.add(Constants.BLOCK_SIZE);
+    }
+
+    // 파일 헤더 읽기
+    public void readFileHeader(RandomAccessFile raf) throws IOException {
+        decodeFileHeader(readHeaderImage(raf), null);
+    }
+
+    public static byte[] readHeaderImage(RandomAccessFile raf) throws IOException {
+        byte[] image = new byte[Constants.BLOCK_SIZE];
+        raf.seek(0);
+        raf.readFully(image);
+        Metrics.HEADER_READS.increment();
+        Metrics.BYTES_READ.add(Constants.BLOCK_SIZE);
+        return image;
+    }
+
+    // schema가 주어지고 필드 개수가 같으면 필드 이름/크기는 디코딩하지 않고 schema의 목록을 공유
+    // 형식 표시(magic)나 버전이 다르면 레코드 배치를 잘못 읽지 않도록 거부
+    public void decodeFileHeader(byte[] image, File schema) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(image);
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        if (magic != Constants.FILE_MAGIC) {
+            throw new IOException("테이블 파일 형식이 아닙니다 (트랜잭션 정보가 없는 이전 형식일 수 있음). 테이블을 다시 생성해야 합니다.");
+        }
+        if (version != Constants.FILE_FORMAT_VERSION) {
+            throw new IOException("지원하지 않는 테이블 파일 버전입니다: " + version + " (지원 버전: " + Constants.FILE_FORMAT_VERSION + ")");
+        }
+
+        this.recordCount = buffer.getInt();
+        int fieldCount = buffer.getInt();
+
+        if (schema != null && schema.fieldNames.size() == fieldCount) {
+            fieldNames = schema.fieldNames;
+            fieldSizes = schema.fieldSizes;
+            buffer.position(buffer.position() + fieldCount * (Constants.FIXED_FIELD_NAME_SIZE + 4));
+        } else {
+            fieldNames = new ArrayList<>();
+            fieldSizes = new ArrayList<>();
+
+            // 필드 이름 읽기
+            for (int i = 0; i < fieldCount; i++) {
+                byte[] nameBytes = new byte[Constants.FIXED_FIELD_NAME_SIZE];
+                buffer.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8).trim();
+                fieldNames.add(name);
+            }
+
+            // 필드 크기 읽기
+            for (int i = 0; i < fieldCount; i++) {
+                fieldSizes.add(buffer.getInt());
+            }
+        }
+
+        this.firstBlockOffset = buffer.getInt();
+        this.committedTxnId = buffer.getInt();
+        this.activeTxnId = buffer.getInt();
+        // 나머지 padding은 무시
+    }
+
+    // 호출자는 latch.writerLock을 보유하고 있어야 함 (블록 탐색은 래치 없이 수행)
+    public void addRecord(RandomAccessFile raf, Record record, TableLatch latch) throws IOException {
+        int blockOffset = this.firstBlockOffset;
+        Block block = null;
+
+        // 파일 크기가 헤더밖에 없으면, 첫 블록이 아직 없는 상태
+        if (raf.length() <= blockOffset) {
+            block = new Block();
+            block.addRecord(record, fieldSizes);
+
+            // 블록 파일에 기록
+            latch.writeBlock(raf, block, blockOffset, fieldSizes);
+
+            this.recordCount++;
+            latch.writeHeader(raf, this);
+            return;
+        }
+
+        // 마지막 블록 탐색
+        while (blockOffset != -1) {
+            block = Block.readBlock(raf, blockOffset, fieldSizes);
+            if (block.nextBlockOffset == -1) break;
+            blockOffset = block.nextBlockOffset;
+        }
+
+        int estimatedSize = record.getSize(fieldSizes);
+        int lastOffset = block.firstAvailableOffset(fieldSizes);
+        int remaining = Constants.BLOCK_SIZE - lastOffset;
+
+        if (remaining < estimatedSize) {
+            // 새 블록 생성
+            Block newBlock = new Block();
+            newBlock.addRecord(record, fieldSizes);
+
+            int newOffset = blockOffset + Constants.BLOCK_SIZE;
+
+            // 새 블록을 먼저 기록한 뒤 기존 블록에서 연결 (reader가 미완성 블록을 따라가지 않도록)
+            latch.writeBlock(raf, newBlock, newOffset, fieldSizes);
+
+            block.nextBlockOffset = newOffset;
+            latch.writeBlock(raf, block, blockOffset, fieldSizes);
+        } else {
+            // 현재 블록에 추가
+            block.addRecord(record, fieldSizes);
+            latch.writeBlock(raf, block, blockOffset, fieldSizes);
+        }
+
+        // 레코드 수 증가 및 헤더 갱신
+        this.recordCount++;
+        latch.writeHeader(raf, this);
+    }
+
+    public String getFileName() {
+        return fieldNames.getFirst().toLowerCase() + Constants.FILE_EXTENSION;
+    }
 
     void printFileHeaderInfo() {
         System.out.println("레코드 개수: " + recordCount);
@@ -617,54 +2132,82 @@ class Block {
     }
 
     public static Block readBlock(RandomAccessFile raf, int position, List<Integer> fieldSizes) throws IOException {
-        if (position >= raf.length()) {
-            throw new EOFException("잘못된 블록 offset 요청: " + position + " (파일 길이: " + raf.length() + ")");
+        return decodeBlock(readBlockImage(raf, position), fieldSizes);
+    }
+
+    // 블록 전체를 한 번의 읽기로 가져옴
+    public static byte[] readBlockImage(RandomAccessFile raf, int position) throws IOException {
+        long length = raf.length();
+        if (position >= length) {
+            throw new EOFException("잘못된 블록 offset 요청: " + position + " (파일 길이: " + length + ")");
         }
 
+        byte[] image = new byte[Constants.BLOCK_SIZE];
+        int readLength = (int) Math.min(Constants.BLOCK_SIZE, length - position);
+        long start = System.nanoTime();
         raf.seek(position);
-        int recordCount = raf.readInt();
-        int nextBlockOffset = raf.readInt();
-        int firstRecordOffset = raf.readInt();
+        raf.readFully(image, 0, readLength);
+        Metrics.BLOCK_READ.recordSince(start);
+        Metrics.BYTES_READ.add(readLength);
+        return image;
+    }
 
-        Block block = new Block();
-        block.recordCount = recordCount;
-        block.nextBlockOffset = nextBlockOffset;
-        block.firstRecordOffset = firstRecordOffset;
+    // 연속된 블록 여러 개를 한 번의 위치 지정 읽기로 가져옴 (파일 포인터를 쓰지 않으므로 다른 스레드에서 호출 가능)
+    // 파일 끝에 닿으면 읽은 만큼만 반환
+    public static byte[] readBlockImages(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long start = System.nanoTime();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        Metrics.READ_AHEAD_IO.recordSince(start);
+        Metrics.BYTES_READ.add(buffer.position());
+        return (buffer.position() == length) ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static Block decodeBlock(byte[] image, List<Integer> fieldSizes) {
+        ByteBuffer buffer = ByteBuffer.wrap(image);
 
-        int currentOffset = position + Constants.BLOCK_HEADER_SIZE;
+        Block block = new Block();
+        block.recordCount = buffer.getInt();
+        block.nextBlockOffset = buffer.getInt();
+        block.firstRecordOffset = buffer.getInt();
 
-        for (int i = 0; i < recordCount; i++) {
-            if (currentOffset >= raf.length()) {
-                System.err.println("레코드 offset이 파일 길이보다 큽니다: " + currentOffset);
+        for (int i = 0; i < block.recordCount; i++) {
+            if (!buffer.hasRemaining()) {
+                System.err.println("레코드 offset이 블록 크기를 벗어납니다: " + buffer.position());
                 break;
             }
-            Record record = Record.readRecord(raf, currentOffset, fieldSizes);
-            block.records.add(record);
-            currentOffset += record.getSize(fieldSizes);
+            block.records.add(Record.readRecord(buffer, fieldSizes));
         }
 
+        Metrics.BYTES_DECODED.add(buffer.position());
+        Metrics.RECORDS_DECODED.add(block.records.size());
         return block;
     }
 
+    // 블록 전체를 한 번의 쓰기로 기록 (reader가 절반만 기록된 블록을 보지 않도록)
     public void writeBlock(RandomAccessFile raf, int position, List<Integer> fieldSizes) throws IOException {
+        byte[] image = encodeBlock(fieldSizes);
+        long start = System.nanoTime();
         raf.seek(position);
+        raf.write(image);
+        Metrics.BLOCK_WRITE.recordSince(start);
+        Metrics.BYTES_WRITTEN.add(image.length);
+    }
 
-        raf.writeInt(recordCount);
-        raf.writeInt(nextBlockOffset);
-        raf.writeInt(firstRecordOffset);
+    public byte[] encodeBlock(List<Integer> fieldSizes) {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.BLOCK_SIZE);
+        buffer.putInt(recordCount);
+        buffer.putInt(nextBlockOffset);
+        buffer.putInt(firstRecordOffset);
 
-        int currentOffset = Constants.BLOCK_HEADER_SIZE + position;
         for (Record record : records) {
-            currentOffset = record.writeRecord(raf, currentOffset, fieldSizes);
+            record.writeRecord(buffer, fieldSizes);
         }
 
-        // padding
-        long writtenSize = currentOffset - position;
-        long padding = Constants.BLOCK_SIZE - writtenSize;
-
-        for (int i = 0; i < padding; i++) {
-            raf.writeByte(0x00);
-        }
+        // 나머지는 0으로 padding된 상태
+        return buffer.array();
     }
 
     public void addRecord(Record newRecord, List<Integer> fieldSizes) {
@@ -740,54 +2283,77 @@ class Block {
 class Record {
     byte nullBitmap;       // 최대 8개 필드의 널 여부 저장
     List<String> fields;   // 가변 길이 필드값
+    int createdTxn;        // 레코드를 삽입한 트랜잭션 id
+    int deletedTxn;        // 레코드를 삭제한 트랜잭션 id (0이면 삭제되지 않음, 삭제 경로가 생길 때 파일 형식을 다시 바꾸지 않도록 자리만 둠)
     int nextRecordOffset;     // 다음 레코드 위치 포인터(offset)
 
     public Record(List<String> fields) {
         this.fields = fields;
+        this.createdTxn = 0;
+        this.deletedTxn = 0;
         this.nextRecordOffset = -1;
         this.nullBitmap = calculateNullBitmap(fields);
     }
 
-    // RandomAccessFile에서 레코드 읽기
-    public static Record readRecord(RandomAccessFile raf, int position, List<Integer> fieldSizes) throws IOException {
-        raf.seek(position);
-        byte nullBitmap = raf.readByte();
+    // 블록 버퍼의 현재 위치에서 레코드 읽기
+    public static Record readRecord(ByteBuffer buffer, List<Integer> fieldSizes) {
+        byte nullBitmap = buffer.get();
         List<String> fields = new ArrayList<>();
 
         for (int i = 0; i < fieldSizes.size(); i++) {
             boolean isNull = ((nullBitmap >> (7 - i)) & 1) == 1;
             if (!isNull) {
                 byte[] data = new byte[fieldSizes.get(i)];
-                raf.readFully(data);
+                buffer.get(data);
                 fields.add(new String(data, StandardCharsets.UTF_8).trim());
             } else {
                 fields.add(null);
             }
         }
 
-        int nextRecordOffset = raf.readInt();
         Record record = new Record(fields);
-        record.nextRecordOffset = nextRecordOffset;
+        record.createdTxn = buffer.getInt();
+        record.deletedTxn = buffer.getInt();
+        record.nextRecordOffset = buffer.getInt();
 
         return record;
     }
 
-    // 레코드를 RandomAccessFile로 기록
-    public int writeRecord(RandomAccessFile raf, int position, List<Integer> fieldSizes) throws IOException {
-        raf.seek(position);
-        raf.writeByte(nullBitmap);
+    // 블록 버퍼의 현재 위치에 레코드 기록
+    public void writeRecord(ByteBuffer buffer, List<Integer> fieldSizes) {
+        buffer.put(nullBitmap);
 
         for (int i = 0; i < fields.size(); i++) {
             if (fields.get(i) != null) {
                 byte[] data = fields.get(i).getBytes(StandardCharsets.UTF_8);
                 byte[] fixed = new byte[fieldSizes.get(i)];
                 System.arraycopy(data, 0, fixed, 0, Math.min(data.length, fixed.length));
-                raf.write(fixed);
+                buffer.put(fixed);
             }
         }
 
-        raf.writeInt(nextRecordOffset);
-        return (int) raf.getFilePointer(); // 다음 레코드를 위한 현재 위치 반환
+        buffer.putInt(createdTxn);
+        buffer.putInt(deletedTxn);
+        buffer.putInt(nextRecordOffset);
+    }
+
+    // 스냅샷 시점에 커밋된 트랜잭션이 만들었고, 그 시점에 아직 삭제되지 않은 레코드만 보임
+    public boolean isVisibleTo(int snapshotTxnId) {
+        return createdTxn <= snapshotTxnId && (deletedTxn == 0 || deletedTxn > snapshotTxnId);
+    }
+
+    // 커밋되지 않은(중단된) 삽입
+    public boolean isObsolete(int committedTxnId) {
+        return createdTxn > committedTxnId;
+    }
+
+    // 모든 필드가 null이 아닐 때의 레코드 크기
+    public static long maxSize(List<Integer> fieldSizes) {
+        long size = 1 + 8 + 4;   // nullBitmap, createdTxn/deletedTxn, nextRecordOffset
+        for (int fieldSize : fieldSizes) {
+            size += fieldSize;
+        }
+        return size;
     }
 
     // 레코드 크기
@@ -798,6 +2364,7 @@ class Record {
                 size += fieldSizes.get(i); // 고정 필드 크기 사용
             }
         }
+        size += 8; // createdTxn, deletedTxn
         size += 4; // nextRecordOffset
         return size;
     }
@@ -818,14 +2385,303 @@ class Record {
     }
 }
 
+// 전역 성능 지표: 횟수/바이트는 LongAdder, 소요 시간은 LatencyHistogram에 누적 (스레드 간 경합 없이 기록)
+// 메뉴 5번과 서버 METRICS 명령으로 텍스트 출력, JMX(dbms:type=Metrics)로도 같은 값을 노출
+class Metrics {
+    private static final Map<String, LongAdder> COUNTERS = new LinkedHashMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new LinkedHashMap<>();
+
+    // 파일 I/O (블록/헤더 읽기·쓰기 횟수는 아래 타이머의 count)
+    static final LongAdder BYTES_READ = counter("bytes_read");
+    static final LongAdder BYTES_WRITTEN = counter("bytes_written");
+    static final LongAdder BYTES_DECODED = counter("bytes_decoded");
+    static final LongAdder RECORDS_DECODED = counter("records_decoded");
+    static final LongAdder HEADER_READS = counter("header_reads");
+    static final LongAdder LATCH_RETRIES = counter("latch_retries");
+
+    // 질의 처리
+    static final LongAdder RECORDS_INSERTED = counter("records_inserted");
+    static final LongAdder RECORDS_COMPARED = counter("records_compared");
+    static final LongAdder JOIN_ROWS = counter("join_rows");
+    static final LongAdder TXN_ABORTED = counter("txn_aborted");
+    static final LongAdder JDBC_ERRORS = counter("jdbc_errors");
+
+    // 스캔 선읽기 (단위: 블록)
+    static final LongAdder READ_AHEAD_ISSUED = counter("read_ahead_issued");
+    static final LongAdder READ_AHEAD_HITS = counter("read_ahead_hits");
+    static final LongAdder READ_AHEAD_WASTED = counter("read_ahead_wasted");
+    static final LongAdder READ_AHEAD_LATE = counter("read_ahead_late");      // 끝나지 않아 건너뛴 블록 (wasted에 포함)
+
+    static final LatencyHistogram BLOCK_READ = timer("block_read");
+    static final LatencyHistogram READ_AHEAD_IO = timer("read_ahead_io");
+    static final LatencyHistogram BLOCK_WRITE = timer("block_write");
+    static final LatencyHistogram HEADER_WRITE = timer("header_write");
+    static final LatencyHistogram APPEND = timer("append");
+    static final LatencyHistogram FIELD_SCAN = timer("field_scan");
+    static final LatencyHistogram RANGE_SCAN = timer("range_scan");
+    static final LatencyHistogram JOIN = timer("join");
+    static final LatencyHistogram ANALYZE = timer("analyze");
+    static final LatencyHistogram JDBC = timer("jdbc");
+
+    private static LongAdder counter(String name) {
+        LongAdder adder = new LongAdder();
+        COUNTERS.put(name, adder);
+        return adder;
+    }
+
+    private static LatencyHistogram timer(String name) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        TIMERS.put(name, histogram);
+        return histogram;
+    }
+
+    static Map<String, LongAdder> counters() {
+        return Collections.unmodifiableMap(COUNTERS);
+    }
+
+    static Map<String, LatencyHistogram> timers() {
+        return Collections.unmodifiableMap(TIMERS);
+    }
+
+    static List<String> dump() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue().sum());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : TIMERS.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue().summary());
+        }
+        return lines;
+    }
+
+    static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+        TIMERS.values().forEach(LatencyHistogram::reset);
+    }
+
+    static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName("dbms:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("JMX 지표 등록 실패: " + e.getMessage());
+        }
+    }
+
+    private Metrics() {}
+}
+
+// HDR 방식의 로그-선형 지연 시간 히스토그램 (단위: ns)
+// 2의 거듭제곱 구간마다 16개의 선형 하위 구간을 두어 상대 오차를 약 6% 이내로 유지
+// 구간마다 LongAdder를 써서 여러 스레드가 동시에 기록해도 경합이 적음
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final LongAdder[] buckets = new LongAdder[(65 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketIndex(value)].increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    // 값 v의 최상위 비트 위치가 e이면 상위 (SUB_BUCKET_BITS + 1)비트로 하위 구간을 정함
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // 구간에 들어가는 가장 큰 값
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    // 백분위 값 (해당 구간의 상한, 최댓값을 넘지 않음)
+    public long percentile(double percent) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    public String summary() {
+        long count = count();
+        double meanMicros = (count == 0) ? 0.0 : totalNanos() / 1e3 / count;
+        return String.format("count=%d total_ms=%.3f mean_us=%.1f p50_us=%.1f p99_us=%.1f p999_us=%.1f max_us=%.1f",
+                count, totalNanos() / 1e6, meanMicros,
+                percentile(50) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3, maxNanos() / 1e3);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
+
+// Metrics를 JMX로 노출: 카운터는 이름 그대로, 타이머는 <이름>_count / _total_us / _p50_us / _p99_us / _max_us
+// 연산: dump (텍스트 출력과 같은 내용), reset
+class MetricsMBean implements DynamicMBean {
+    private final Map<String, LongSupplier> attributes = new LinkedHashMap<>();
+
+    public MetricsMBean() {
+        for (Map.Entry<String, LongAdder> entry : Metrics.counters().entrySet()) {
+            attributes.put(entry.getKey(), entry.getValue()::sum);
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : Metrics.timers().entrySet()) {
+            String name = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            attributes.put(name + "_count", histogram::count);
+            attributes.put(name + "_total_us", () -> histogram.totalNanos() / 1000);
+            attributes.put(name + "_p50_us", () -> histogram.percentile(50) / 1000);
+            attributes.put(name + "_p99_us", () -> histogram.percentile(99) / 1000);
+            attributes.put(name + "_max_us", () -> histogram.maxNanos() / 1000);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongSupplier supplier = attributes.get(attribute);
+        if (supplier == null) {
+            throw new AttributeNotFoundException("존재하지 않는 지표입니다: " + attribute);
+        }
+        return supplier.getAsLong();
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("지표는 읽기 전용입니다: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            LongSupplier supplier = attributes.get(name);
+            if (supplier != null) {
+                list.add(new Attribute(name, supplier.getAsLong()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributeList) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        switch (actionName) {
+            case "dump" -> {
+                return String.join("\n", Metrics.dump());
+            }
+            case "reset" -> {
+                Metrics.reset();
+                return null;
+            }
+            default -> throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (String name : attributes.keySet()) {
+            infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+        }
+        MBeanOperationInfo[] operations = {
+                new MBeanOperationInfo("dump", "지표 전체를 텍스트로 반환", new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("reset", "모든 지표를 0으로 초기화", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION)
+        };
+        return new MBeanInfo(getClass().getName(), "DBMS 저장소 성능 지표",
+                infos.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+    }
+}
+
 class Constants {
     public final static int BLOCK_SIZE = 100;
     public final static int BLOCK_HEADER_SIZE = 12;
     public final static int FIXED_FIELD_NAME_SIZE = 20;
+    public final static int PAGE_LATCH_STRIPES = 64;
+    public final static int MAX_IDLE_HANDLES = 64;
+    public final static int MAX_BORROWED_HANDLES = Integer.getInteger("dbms.handles.max", 512);
+
+    // 테이블 파일 헤더 맨 앞의 형식 표시("DBMS")와 버전 (레코드에 트랜잭션 id가 들어간 형식이 2)
+    public final static int FILE_MAGIC = 0x44424D53;
+    public final static int FILE_FORMAT_VERSION = 2;
 
     public final static String FILE_EXTENSION = ".bin";
+    public final static String STATS_EXTENSION = ".stats";
+    public final static String LOCK_EXTENSION = ".lock";        // 테이블 파일 옆에 두는 프로세스 간 잠금 파일 (orders.bin.lock)
     public final static String DELIMITER = "\\s+";
 
+    // ANALYZE 설정
+    public final static int ANALYZE_BATCH_SIZE = 4096;
+    public final static int ANALYZE_SAMPLE_SIZE = 30000;
+    public final static long ANALYZE_SAMPLE_SEED = 20190564L;
+    public final static int HLL_PRECISION = 12;
+    public final static int MCV_COUNT = 10;
+    public final static int HISTOGRAM_BUCKETS = 20;
+
+    // 스캔 선읽기 설정 (-Ddbms.readahead.max=0 이면 사용하지 않음)
+    public final static int READ_AHEAD_MAX_BLOCKS = Integer.getInteger("dbms.readahead.max", 256);
+    public final static int READ_AHEAD_INITIAL_BLOCKS = 8;
+    public final static int READ_AHEAD_THREADS = Integer.getInteger("dbms.readahead.threads", 4);
+
+    // 서버 설정
+    public final static int SERVER_PORT = 7878;
+    public final static int SERVER_BACKLOG = 4096;
+    public final static int SERVER_MAX_INSERT_ROWS = 100_000;   // INSERT 한 번에 받을 수 있는 레코드 수
+
     public static final String JDBC_URL = "jdbc:mysql://localhost:3306/DBMS_storage_system";
     public static final String JDBC_USER = "root";
     public static final String JDBC_PASSWORD = "20190564";
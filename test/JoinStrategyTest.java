@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 조인 키에 null이 있는 경우와 통계로 정한 조인 전략/build 쪽 확인
+class JoinStrategyTest {
+    private static final String SQL = "select * from join_fact, join_dim where join_fact.k = join_dim.k";
+
+    private static void load(String table, List<List<String>> rows) throws IOException {
+        DBStorageManager.createTable(table, List.of("id", "k"), List.of(4, 4));
+        DBStorageManager.appendRecords(table, rows);
+    }
+
+    private static List<List<String>> rows(String... pairs) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            rows.add(Arrays.asList(pairs[i], pairs[i + 1]));
+        }
+        return rows;
+    }
+
+    @Test
+    void nullJoinKeysAreSkipped() throws IOException {
+        // 두 번째 필드가 조인 키, "null"은 널 필드로 저장됨
+        load("join_fact", rows("f1", "a", "f2", "null", "f3", "b", "f4", "b"));
+        load("join_dim", rows("d1", "a", "d2", "b", "d3", "null"));
+
+        List<String> plans = new ArrayList<>();
+        List<List<String>> result = new ArrayList<>();
+        DBQueryProcessor.executeJoin(SQL, plans::add, result::add);
+        assertEquals(3, result.size());
+
+        DBStorageManager.analyzeTable("join_fact");
+        DBStorageManager.analyzeTable("join_dim");
+
+        plans.clear();
+        result.clear();
+        DBQueryProcessor.executeJoin(SQL, plans::add, result::add);
+        assertEquals(3, result.size());
+        // null을 빼면 두 키 모두 정렬되어 있으므로 정렬 없이 merge join
+        assertTrue(plans.getFirst().startsWith("Merge Join"), plans.toString());
+    }
+
+    @Test
+    void hashJoinBuildsOnSmallerSide() throws IOException {
+        load("join_fact", rows("f1", "c", "f2", "a", "f3", "b", "f4", "a", "f5", "c", "f6", "b"));
+        load("join_dim", rows("d1", "b", "d2", "a"));
+        DBStorageManager.analyzeTable("join_fact");
+        DBStorageManager.analyzeTable("join_dim");
+
+        List<String> plans = new ArrayList<>();
+        DBQueryProcessor.executeJoin("explain analyze " + SQL, plans::add, row -> {});
+        assertTrue(plans.get(0).startsWith("Hash Join"), plans.toString());
+        assertTrue(plans.get(0).contains("실제 결과 수: 4"), plans.toString());
+        assertTrue(plans.get(1).contains("해시 테이블 구성: join_dim"), plans.toString());
+    }
+
+    // 정렬되지 않은 작은 join_dim은 정렬해서 병합할 수 있지만, 정렬된 join_fact를 얼마나 읽을지는
+    // join_dim 키의 최댓값까지의 범위 추정치로 정해지므로 같은 행 수라도 키 범위에 따라 전략이 달라짐
+    @Test
+    void rangeEstimateDecidesBetweenMergeAndHash() throws IOException {
+        List<List<String>> fact = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            fact.add(List.of("f" + i, String.format("k%03d", i)));
+        }
+        load("join_fact", fact);
+
+        // join_fact 앞쪽 키만 가진 경우: join_fact를 조금만 읽고 멈추는 merge join이 더 쌈
+        List<List<String>> lowKeys = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            lowKeys.add(List.of("d" + i, String.format("k%03d", (i * 7) % 16)));
+        }
+        load("join_dim", lowKeys);
+        DBStorageManager.analyzeTable("join_fact");
+        DBStorageManager.analyzeTable("join_dim");
+
+        List<String> plans = new ArrayList<>();
+        DBQueryProcessor.executeJoin("explain analyze " + SQL, plans::add, row -> {});
+        assertTrue(plans.get(0).startsWith("Merge Join"), plans.toString());
+        assertTrue(plans.get(0).contains("실제 결과 수: 16"), plans.toString());
+        assertTrue(plans.get(1).contains("병합 전 정렬: join_dim"), plans.toString());
+
+        // 같은 개수의 키가 join_fact 전체 범위에 흩어진 경우: join_fact를 끝까지 읽어야 하므로 hash join
+        List<List<String>> spreadKeys = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            spreadKeys.add(List.of("d" + i, String.format("k%03d", (i * 7) % 16 * 13)));
+        }
+        load("join_dim", spreadKeys);
+        DBStorageManager.analyzeTable("join_dim");
+
+        plans.clear();
+        DBQueryProcessor.executeJoin("explain analyze " + SQL, plans::add, row -> {});
+        assertTrue(plans.get(0).startsWith("Hash Join"), plans.toString());
+        assertTrue(plans.get(0).contains("실제 결과 수: 16"), plans.toString());
+    }
+}
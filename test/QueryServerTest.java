@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 루프백의 빈 포트에 서버를 띄우고 한 연결에서 명령을 주고받음
+class QueryServerTest {
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private Socket socket;
+    private BufferedReader in;
+    private PrintWriter out;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        QueryServer server = new QueryServer(0);
+        serverSocket = server.bind();
+        serverThread = new Thread(() -> {
+            try {
+                server.serve(serverSocket);
+            } catch (IOException e) {
+                // 테스트가 끝나 소켓을 닫으면 accept가 실패하며 종료
+            }
+        });
+        serverThread.start();
+
+        socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        socket.close();
+        serverSocket.close();
+        serverThread.join();
+    }
+
+    // 요청 줄들을 보내고 OK/ERR 줄까지의 응답을 반환
+    private List<String> request(String... lines) throws IOException {
+        for (String line : lines) {
+            out.println(line);
+        }
+        List<String> response = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            response.add(line);
+            if (line.startsWith("OK") || line.startsWith("ERR")) break;
+        }
+        return response;
+    }
+
+    @Test
+    void createInsertRangeJoinRoundTrip() throws IOException {
+        assertEquals(List.of("OK 테이블 생성 완료"), request("CREATE srv_orders k:4 item:6"));
+        assertEquals(List.of("OK 3개 레코드 삽입 완료"), request("INSERT srv_orders 3", "a1 pen", "b1 ink", "c1 null"));
+
+        assertEquals(List.of("ROW a1, pen", "ROW b1, ink", "OK 2"), request("RANGE srv_orders a0 b9"));
+
+        request("CREATE srv_users k:4 name:6");
+        request("INSERT srv_users 2", "a1 kim", "c1 lee");
+        assertEquals(List.of("ROW a1, pen, a1, kim", "ROW c1, null, c1, lee", "OK 2"),
+                request("JOIN select * from srv_orders, srv_users where srv_orders.k = srv_users.k"));
+
+        List<String> plan = request("JOIN explain analyze select * from srv_orders, srv_users where srv_orders.k = srv_users.k");
+        assertTrue(plan.getFirst().startsWith("PLAN Merge Join"), plan.toString());
+        assertEquals("OK 0", plan.getLast());
+
+        assertEquals(List.of("OK 연결 종료"), request("QUIT"));
+    }
+
+    @Test
+    void invalidFieldSizesAreRejected() throws IOException {
+        // 레코드 1 + 200 + 12 bytes는 블록(데이터 88 bytes)에 들어가지 않음
+        List<String> tooLarge = request("CREATE srv_bad k:200");
+        assertTrue(tooLarge.getFirst().startsWith("ERR 입력 오류"), tooLarge.toString());
+
+        assertTrue(request("CREATE srv_bad k:0").getFirst().startsWith("ERR 입력 오류"));
+        assertTrue(request("CREATE srv_bad k:-4").getFirst().startsWith("ERR 입력 오류"));
+        assertTrue(request("INSERT srv_missing 1", "x").getFirst().startsWith("ERR 존재하지 않는 테이블"));
+
+        // 연결은 계속 쓸 수 있음
+        assertEquals(List.of("OK 테이블 생성 완료"), request("CREATE srv_ok k:4 v:70"));
+        assertEquals(List.of("OK 1개 레코드 삽입 완료"), request("INSERT srv_ok 1", "a1 v"));
+    }
+}
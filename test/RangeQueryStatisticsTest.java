@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// ANALYZE 이후에도 범위 검색 결과가 통계 추정치에 따라 달라지지 않아야 함
+class RangeQueryStatisticsTest {
+    private static final String TABLE = "range_stats_t1";
+
+    @BeforeEach
+    void createTable() throws IOException {
+        DBStorageManager.createTable(TABLE, List.of("k", "v"), List.of(4, 4));
+
+        List<List<String>> rows = new ArrayList<>();
+        for (String key : List.of("a", "a", "a", "b", "b", "b", "c")) {
+            rows.add(List.of(key, "v"));
+        }
+        DBStorageManager.appendRecords(TABLE, rows);
+    }
+
+    // MCV도 아니고 표본 히스토그램 범위에도 없는 값 (추정치 0)
+    @Test
+    void rangeOutsideSampledBucketsStillScans() throws IOException {
+        assertEquals(1, DBStorageManager.getRecordsInRange(TABLE, "c", "c").size());
+        assertEquals(1, DBStorageManager.getRecordsInRange(TABLE, "bb", "c").size());
+
+        DBStorageManager.analyzeTable(TABLE);
+
+        assertEquals(1, DBStorageManager.getRecordsInRange(TABLE, "c", "c").size());
+        assertEquals(1, DBStorageManager.getRecordsInRange(TABLE, "bb", "c").size());
+        assertEquals(7, DBStorageManager.getRecordsInRange(TABLE, "a", "c").size());
+    }
+
+    @Test
+    void rangeOutsideMinMaxIsEmpty() throws IOException {
+        DBStorageManager.analyzeTable(TABLE);
+
+        assertEquals(0, DBStorageManager.getRecordsInRange(TABLE, "d", "z").size());
+        assertEquals(0, DBStorageManager.getRecordsInRange(TABLE, "c", "a").size());
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 형식 표시가 없는 이전 형식 파일은 엉뚱한 값으로 읽지 않고 거부해야 함
+class TableFileFormatTest {
+    @Test
+    void preMvccTableIsRejected() throws IOException {
+        // 트랜잭션 정보가 없던 형식: 레코드 수, 필드 수, 필드 이름, 필드 크기, 첫 블록 offset
+        ByteBuffer header = ByteBuffer.allocate(Constants.BLOCK_SIZE);
+        header.putInt(1);
+        header.putInt(2);
+        for (String name : List.of("k", "v")) {
+            header.put(Arrays.copyOf(name.getBytes(StandardCharsets.UTF_8), Constants.FIXED_FIELD_NAME_SIZE));
+        }
+        header.putInt(4);
+        header.putInt(4);
+        header.putInt(Constants.BLOCK_SIZE);
+
+        try (RandomAccessFile raf = new RandomAccessFile("format_old.bin", "rw")) {
+            raf.setLength(0);
+            raf.write(header.array());
+            raf.write(new byte[Constants.BLOCK_SIZE]);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> DBStorageManager.getRecordsInRange("format_old", "a", "z"));
+        assertTrue(e.getMessage().contains("다시 생성"), e.getMessage());
+    }
+
+    @Test
+    void currentFormatRoundTrips() throws IOException {
+        DBStorageManager.createTable("format_new", List.of("k", "v"), List.of(4, 4));
+        DBStorageManager.appendRecords("format_new", List.of(List.of("a", "1"), List.of("b", "2")));
+
+        try (RandomAccessFile raf = new RandomAccessFile("format_new.bin", "r")) {
+            File header = new File();
+            header.readFileHeader(raf);
+            assertEquals(2, header.recordCount);
+            assertEquals(1, header.committedTxnId);
+            assertEquals(List.of("k", "v"), header.fieldNames);
+        }
+        assertEquals(2, DBStorageManager.getRecordsInRange("format_new", "a", "z").size());
+    }
+}
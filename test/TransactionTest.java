@@ -0,0 +1,128 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 삽입 트랜잭션: 중단되면 기록한 레코드가 모두 사라지고, 스캔은 커밋된 묶음 전체만 봄
+class TransactionTest {
+    private static List<List<String>> batch(String prefix, int count) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(List.of(String.format("%s%02d", prefix, i), "v"));
+        }
+        return rows;
+    }
+
+    // 묶음 번호 -> 키 앞 두 글자 (a0, a1, ..., b0, ...)
+    private static String batchPrefix(int batch) {
+        return String.format("%c%c", 'a' + batch / 10, '0' + batch % 10);
+    }
+
+    private static File readHeader(String table) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(table + Constants.FILE_EXTENSION, "r")) {
+            File header = new File();
+            header.readFileHeader(raf);
+            return header;
+        }
+    }
+
+    @Test
+    void abortedLoadLeavesOnlyCommittedRows() throws IOException {
+        String table = "txn_abort";
+        DBStorageManager.createTable(table, List.of("k", "v"), List.of(4, 4));
+        DBStorageManager.appendRecords(table, batch("a", 3));
+
+        // 여러 블록을 쓴 뒤 중간에서 실패하는 묶음
+        List<List<String>> rows = batch("b", 40);
+        rows.set(30, List.of("broken"));
+        assertThrows(IllegalArgumentException.class, () -> DBStorageManager.appendRecords(table, rows));
+
+        List<Record> visible = DBStorageManager.getRecordsInRange(table, "a", "z");
+        assertEquals(List.of("a00", "a01", "a02"), visible.stream().map(r -> r.fields.get(0)).toList());
+
+        File header = readHeader(table);
+        assertEquals(3, header.recordCount);
+        assertEquals(1, header.committedTxnId);
+        assertEquals(0, header.activeTxnId);
+
+        DBStorageManager.appendRecords(table, batch("c", 2));
+        assertEquals(5, DBStorageManager.getRecordsInRange(table, "a", "z").size());
+        assertEquals(5, readHeader(table).recordCount);
+    }
+
+    @Test
+    void concurrentScansSeeOnlyWholeCommittedBatches() throws Exception {
+        String table = "txn_snapshot";
+        int batchSize = 7;
+        int batchCount = 30;
+        DBStorageManager.createTable(table, List.of("k", "v"), List.of(4, 4));
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger scans = new AtomicInteger();
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                int last = 0;
+                while (!done.get()) {
+                    try {
+                        List<Record> records = DBStorageManager.getRecordsInRange(table, "a", "z");
+
+                        // 묶음별 레코드 수: 커밋된 묶음은 앞에서부터 빠짐없이, 각각 batchSize개
+                        Map<String, Integer> perBatch = new TreeMap<>();
+                        for (Record record : records) {
+                            perBatch.merge(record.fields.get(0).substring(0, 2), 1, Integer::sum);
+                        }
+                        int expectedBatch = 0;
+                        for (Map.Entry<String, Integer> entry : perBatch.entrySet()) {
+                            if (!entry.getKey().equals(batchPrefix(expectedBatch))
+                                    || entry.getValue() != batchSize) {
+                                errors.add("부분 묶음: " + perBatch);
+                                return;
+                            }
+                            expectedBatch++;
+                        }
+                        if (records.size() < last) {
+                            errors.add("레코드 수 감소: " + last + " -> " + records.size());
+                            return;
+                        }
+                        last = records.size();
+                        scans.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        errors.add(e.toString());
+                        return;
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        try {
+            for (int b = 0; b < batchCount; b++) {
+                DBStorageManager.appendRecords(table, batch(batchPrefix(b), batchSize));
+            }
+        } finally {
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(scans.get() > 0);
+        assertEquals(batchSize * batchCount, DBStorageManager.getRecordsInRange(table, "a", "z").size());
+    }
+}